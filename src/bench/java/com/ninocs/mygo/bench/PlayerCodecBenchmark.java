@@ -0,0 +1,187 @@
+package com.ninocs.mygo.bench;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import com.ninocs.mygo.api.playerXtnInfoApi;
+import com.ninocs.mygo.client.data.PlayerDataCodec;
+import com.ninocs.mygo.client.data.PlayerExtendedInfo;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+
+/**
+ * 玩家记录编解码微基准
+ * 对比旧的JsonObject树解析/格式化路径与流式编解码器的吞吐量和分配量
+ *
+ * 运行方式：./gradlew playerCodecBenchmark
+ * 可选参数：-Dbench.iterations=200000 -Dbench.warmup=50000
+ */
+public class PlayerCodecBenchmark {
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 200_000);
+    private static final int WARMUP = Integer.getInteger("bench.warmup", 50_000);
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final Gson prettyGson = new GsonBuilder().setPrettyPrinting().create();
+
+    // 防止JIT消除无副作用的计算
+    private static long blackhole;
+
+    @FunctionalInterface
+    private interface Operation {
+        void run() throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        playerXtnInfoApi.UserInfo userInfo = sampleUserInfo();
+        String storedJson = prettyGson.toJson(userInfo);
+
+        System.out.printf("Player record: %d chars, %d iterations (warmup %d)%n",
+                storedJson.length(), ITERATIONS, WARMUP);
+        System.out.printf("%-28s %14s %14s%n", "case", "ops/s", "bytes/op");
+
+        measure("read  tree (JsonParser)", () -> {
+            PlayerExtendedInfo info = parseWithTree("bench_player", storedJson);
+            blackhole += info.getUserNm().length();
+        });
+        measure("read  streaming codec", () -> {
+            PlayerExtendedInfo info = PlayerDataCodec.readPlayerExtendedInfo("bench_player", new StringReader(storedJson));
+            blackhole += info.getUserNm().length();
+        });
+
+        String compactJson = new Gson().toJson(userInfo);
+        measure("write tree (formatJson)", () -> {
+            JsonObject jsonObject = JsonParser.parseString(prettyGson.toJson(userInfo)).getAsJsonObject();
+            CountingWriter writer = new CountingWriter();
+            writer.write(prettyGson.toJson(jsonObject));
+            blackhole += writer.count;
+        });
+        measure("write streaming codec", () -> {
+            CountingWriter writer = new CountingWriter();
+            JsonWriter out = PlayerDataCodec.newPrettyWriter(writer);
+            PlayerDataCodec.USER_INFO.write(out, userInfo);
+            out.flush();
+            blackhole += writer.count;
+        });
+        measure("copy  raw JSON (streaming)", () -> {
+            CountingWriter writer = new CountingWriter();
+            JsonWriter out = PlayerDataCodec.newPrettyWriter(writer);
+            String uuid = PlayerDataCodec.copyPlayerRecord(PlayerDataCodec.newReader(new StringReader(compactJson)), out, 1L);
+            out.flush();
+            blackhole += writer.count + uuid.length();
+        });
+
+        System.out.println("(blackhole " + blackhole + ")");
+    }
+
+    private static void measure(String name, Operation operation) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+
+        long allocatedBefore = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        double opsPerSecond = ITERATIONS / (elapsed / 1_000_000_000.0);
+        System.out.printf("%-28s %14.0f %14d%n", name, opsPerSecond, allocated / ITERATIONS);
+    }
+
+    /**
+     * 旧版PlayerExtendedInfoReader.parsePlayerExtendedInfo的解析方式：先构建JsonObject树再逐字段读取
+     */
+    private static PlayerExtendedInfo parseWithTree(String playerName, String jsonData) {
+        JsonElement element = JsonParser.parseString(jsonData);
+        JsonObject jsonObject = element.getAsJsonObject();
+        PlayerExtendedInfo info = new PlayerExtendedInfo();
+        info.setPlayerName(playerName);
+        if (jsonObject.has("playerUUID")) {
+            info.setPlayerUUID(jsonObject.get("playerUUID").getAsString());
+        }
+        if (jsonObject.has("userNm") && !jsonObject.get("userNm").isJsonNull()) {
+            info.setUserNm(jsonObject.get("userNm").getAsString());
+        }
+        if (jsonObject.has("avatar") && !jsonObject.get("avatar").isJsonNull()) {
+            info.setAvatar(jsonObject.get("avatar").getAsString());
+        }
+        if (jsonObject.has("loginIdNbr") && !jsonObject.get("loginIdNbr").isJsonNull()) {
+            info.setLoginIdNbr(jsonObject.get("loginIdNbr").getAsString());
+        }
+        if (jsonObject.has("xtnInfo") && jsonObject.get("xtnInfo").isJsonObject()) {
+            JsonObject xtnInfo = jsonObject.getAsJsonObject("xtnInfo");
+            if (xtnInfo.has("userCard") && !xtnInfo.get("userCard").isJsonNull()) {
+                info.setUserCard(xtnInfo.get("userCard").getAsString());
+            }
+            if (xtnInfo.has("userBanner") && !xtnInfo.get("userBanner").isJsonNull()) {
+                info.setUserBanner(xtnInfo.get("userBanner").getAsString());
+            }
+            if (xtnInfo.has("mvpMusicUrl") && !xtnInfo.get("mvpMusicUrl").isJsonNull()) {
+                info.setMvpMusicUrl(xtnInfo.get("mvpMusicUrl").getAsString());
+            }
+            if (xtnInfo.has("mvpVideosUrl") && !xtnInfo.get("mvpVideosUrl").isJsonNull()) {
+                info.setMvpVideosUrl(xtnInfo.get("mvpVideosUrl").getAsString());
+            }
+            if (xtnInfo.has("userSpaceContexts") && !xtnInfo.get("userSpaceContexts").isJsonNull()) {
+                info.setUserSpaceContexts(xtnInfo.get("userSpaceContexts").getAsString());
+            }
+            if (xtnInfo.has("mvpMusicNm") && !xtnInfo.get("mvpMusicNm").isJsonNull()) {
+                info.setMvpMusicNm(xtnInfo.get("mvpMusicNm").getAsString());
+            }
+        }
+        return info;
+    }
+
+    private static playerXtnInfoApi.UserInfo sampleUserInfo() {
+        String hash = "3f6c1a8e9b0d4c7f2e5a8b1d4c7f0a3e6b9c2d5f8a1b4c7e0d3f6a9b2c5e8f1a";
+        var xtnInfo = new playerXtnInfoApi.XtnInfo();
+        xtnInfo.setUserCard("https://img.mcgo.ninocs.com/card/" + hash + ".png");
+        xtnInfo.setUserBanner("https://img.mcgo.ninocs.com/banner/" + hash + ".png");
+        xtnInfo.setMvpMusicUrl("https://img.mcgo.ninocs.com/music/" + hash + ".ogg");
+        xtnInfo.setMvpVideosUrl("https://img.mcgo.ninocs.com/video/" + hash + ".mp4");
+        xtnInfo.setUserSpaceContexts("https://mcgo.ninocs.com/space/bench_player");
+        xtnInfo.setMvpMusicNm("Bench Anthem");
+
+        var userInfo = new playerXtnInfoApi.UserInfo();
+        userInfo.setPlayerUUID("0f3c5d1e-2a4b-4c6d-8e0f-1a2b3c4d5e6f");
+        userInfo.setUserNm("基准测试玩家");
+        userInfo.setAvatar("https://img.mcgo.ninocs.com/avatar/" + hash + ".png");
+        userInfo.setLoginIdNbr("100000001");
+        userInfo.setXtnInfo(xtnInfo);
+        userInfo.setPlayerId("bench_player");
+        return userInfo;
+    }
+
+    /**
+     * 只统计字符数的Writer，避免把I/O开销计入编解码成本
+     */
+    private static final class CountingWriter extends Writer {
+        private long count;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void write(String str, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+}
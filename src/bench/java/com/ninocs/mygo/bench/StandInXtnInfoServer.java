@@ -0,0 +1,264 @@
+package com.ninocs.mygo.bench;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import com.ninocs.mygo.util.SHA256;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 玩家扩展信息API的本地替身服务器
+ * 基于JDK自带的com.sun.net.httpserver，返回合成的queryUserXtnInfo响应以及对应的头像/卡片图片，
+ * 用于在离线环境中压测请求、解析、保存和下载的完整链路
+ *
+ * 单独运行方式：./gradlew standInXtnInfoServer
+ * 可选参数：
+ *   -Dstandin.port=8080         监听端口（0为随机端口）
+ *   -Dstandin.latencyMs=50      每个请求的基础延迟
+ *   -Dstandin.jitterMs=20       在基础延迟上追加的随机延迟上限
+ *   -Dstandin.errorRate=0.0     返回HTTP 503的请求比例
+ *   -Dstandin.unknownRate=0.05  API中不存在的玩家比例
+ *   -Dstandin.imageBytes=16384  每张图片的字节数
+ *   -Dstandin.padding=0         每个玩家记录额外附加的字符数，用于放大响应体
+ */
+public class StandInXtnInfoServer {
+    public static final String API_PATH = "/user/space/queryUserXtnInfo";
+
+    // 写进响应里的图片地址主机，与正式环境一致，由客户端的图片主机替换功能改写到本服务器
+    private static final String IMAGE_HOST = "https://img.mcgo.ninocs.com";
+
+    private final int port;
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double errorRate;
+    private final double unknownRate;
+    private final int imageBytes;
+    private final int padding;
+
+    // 已生成的图片：SHA256 -> 内容
+    private final ConcurrentHashMap<String, byte[]> images = new ConcurrentHashMap<>();
+
+    // 统计：API请求数、返回的玩家数、图片请求数、发送的图片字节数
+    private final AtomicLong apiRequests = new AtomicLong();
+    private final AtomicLong playersServed = new AtomicLong();
+    private final AtomicLong imageRequests = new AtomicLong();
+    private final AtomicLong imageBytesServed = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * 使用系统属性中的参数创建替身服务器
+     */
+    public StandInXtnInfoServer() {
+        this.port = Integer.getInteger("standin.port", 0);
+        this.latencyMs = Long.getLong("standin.latencyMs", 50L);
+        this.jitterMs = Long.getLong("standin.jitterMs", 20L);
+        this.errorRate = Double.parseDouble(System.getProperty("standin.errorRate", "0.0"));
+        this.unknownRate = Double.parseDouble(System.getProperty("standin.unknownRate", "0.05"));
+        this.imageBytes = Integer.getInteger("standin.imageBytes", 16_384);
+        this.padding = Integer.getInteger("standin.padding", 0);
+    }
+
+    public static void main(String[] args) throws IOException {
+        StandInXtnInfoServer server = new StandInXtnInfoServer();
+        server.start();
+        System.out.println("Stand-in xtnInfo server listening");
+        System.out.println("  -D" + "dfspectatorui.api.url=" + server.getApiUrl());
+        System.out.println("  -D" + "dfspectatorui.image.host=" + server.getImageHost());
+    }
+
+    /**
+     * 启动服务器
+     */
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 256);
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "StandIn-XtnInfo-Server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext(API_PATH, this::handleQuery);
+        server.createContext("/", this::handleImage);
+        server.start();
+    }
+
+    /**
+     * 停止服务器
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    public String getApiUrl() {
+        return getImageHost() + API_PATH;
+    }
+
+    public String getImageHost() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long getApiRequests() {
+        return apiRequests.get();
+    }
+
+    public long getPlayersServed() {
+        return playersServed.get();
+    }
+
+    public long getImageRequests() {
+        return imageRequests.get();
+    }
+
+    public long getImageBytesServed() {
+        return imageBytesServed.get();
+    }
+
+    private void handleQuery(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            // 只接受POST查询，其他方法（如客户端预热连接用的HEAD）直接返回405
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            apiRequests.incrementAndGet();
+            JsonElement body;
+            try (InputStreamReader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+                body = JsonParser.parseReader(reader);
+            }
+
+            simulateLatency();
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            JsonArray playerIds = body.getAsJsonObject().getAsJsonArray("playerIds");
+            boolean gzip = exchange.getRequestHeaders().getOrDefault("Accept-Encoding", List.of())
+                    .stream().anyMatch(value -> value.contains("gzip"));
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            if (gzip) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(200, 0);
+
+            OutputStream out = gzip ? new GZIPOutputStream(exchange.getResponseBody()) : exchange.getResponseBody();
+            try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                writer.beginObject();
+                writer.name("code").value("0");
+                writer.name("message").value("success");
+                writer.name("data").beginObject();
+                for (JsonElement element : playerIds) {
+                    String playerId = element.getAsString();
+                    if (isKnown(playerId)) {
+                        writer.name(playerId);
+                        writeUserInfo(writer, playerId);
+                        playersServed.incrementAndGet();
+                    }
+                }
+                writer.endObject();
+                writer.endObject();
+            }
+        }
+    }
+
+    private void handleImage(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            imageRequests.incrementAndGet();
+            String path = exchange.getRequestURI().getPath();
+            String sha256 = SHA256.extractSHA256FromUrl(path);
+            byte[] content = sha256 == null ? null : images.get(sha256);
+
+            simulateLatency();
+            if (content == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "image/png");
+            exchange.sendResponseHeaders(200, content.length);
+            exchange.getResponseBody().write(content);
+            imageBytesServed.addAndGet(content.length);
+        }
+    }
+
+    private void writeUserInfo(JsonWriter writer, String playerId) throws IOException {
+        String avatarHash = registerImage(playerId + "#avatar");
+        String cardHash = registerImage(playerId + "#card");
+
+        writer.beginObject();
+        writer.name("playerUUID").value(new java.util.UUID(playerId.hashCode(), ~playerId.hashCode()).toString());
+        writer.name("userNm").value("替身玩家 " + playerId);
+        writer.name("avatar").value(IMAGE_HOST + "/avatar/" + avatarHash + ".png");
+        writer.name("loginIdNbr").value(String.valueOf(Math.abs((long) playerId.hashCode())));
+        writer.name("xtnInfo").beginObject();
+        writer.name("userCard").value(IMAGE_HOST + "/card/" + cardHash + ".png");
+        writer.name("userBanner").value(IMAGE_HOST + "/banner/" + cardHash + ".png");
+        writer.name("mvpMusicUrl").value(IMAGE_HOST + "/music/" + cardHash + ".ogg");
+        writer.name("mvpVideosUrl").value(IMAGE_HOST + "/video/" + cardHash + ".mp4");
+        writer.name("userSpaceContexts").value("https://mcgo.ninocs.com/space/" + playerId + "x".repeat(padding));
+        writer.name("mvpMusicNm").value("Stand-in Anthem");
+        writer.endObject();
+        writer.name("playerId").value(playerId);
+        writer.endObject();
+    }
+
+    /**
+     * 生成确定的图片内容并登记，返回其SHA256
+     */
+    private String registerImage(String seed) {
+        byte[] content = new byte[imageBytes];
+        new Random(seed.hashCode()).nextBytes(content);
+        try {
+            String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+            images.putIfAbsent(sha256, content);
+            return sha256;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean isKnown(String playerId) {
+        // 按玩家名确定是否存在，多次查询结果一致
+        return new Random(playerId.hashCode() * 31L).nextDouble() >= unknownRate;
+    }
+
+    private void simulateLatency() {
+        long delay = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
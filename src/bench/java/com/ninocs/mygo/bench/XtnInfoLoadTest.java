@@ -0,0 +1,142 @@
+package com.ninocs.mygo.bench;
+
+import com.ninocs.mygo.api.ApiEndpoints;
+import com.ninocs.mygo.api.XtnInfoPipeline;
+import com.ninocs.mygo.api.playerXtnInfoApi;
+import com.ninocs.mygo.client.data.PlayerDataWriteQueue;
+import com.ninocs.mygo.downloads.ImageDownloader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 玩家扩展信息链路的负载测试
+ * 模拟N个玩家，按批量大小和并发上限向API（默认为本地替身服务器）发送查询，
+ * 统计请求吞吐量与耗时分位数，再等待所有头像/卡片下载和玩家数据写入完成，最后输出流水线各阶段的统计
+ *
+ * 运行方式：./gradlew xtnInfoLoadTest
+ * 可选参数：
+ *   -Dbench.players=200       模拟的玩家数
+ *   -Dbench.batchSize=50      每个请求携带的玩家数
+ *   -Dbench.concurrency=4     同时进行的请求数
+ *   -Dbench.rounds=3          重复轮数（第一轮之后图片已缓存）
+ *   -Dbench.url=...           使用外部服务器而不是启动替身服务器（同时需要设置dfspectatorui.image.host）
+ * 替身服务器的参数见StandInXtnInfoServer
+ */
+public class XtnInfoLoadTest {
+    private static final int PLAYERS = Integer.getInteger("bench.players", 200);
+    private static final int BATCH_SIZE = Integer.getInteger("bench.batchSize", 50);
+    private static final int CONCURRENCY = Integer.getInteger("bench.concurrency", 4);
+    private static final int ROUNDS = Integer.getInteger("bench.rounds", 3);
+
+    public static void main(String[] args) throws Exception {
+        StandInXtnInfoServer server = null;
+        String externalUrl = System.getProperty("bench.url");
+        if (externalUrl != null) {
+            System.setProperty(ApiEndpoints.API_URL_PROPERTY, externalUrl);
+        } else {
+            server = new StandInXtnInfoServer();
+            server.start();
+            System.setProperty(ApiEndpoints.API_URL_PROPERTY, server.getApiUrl());
+            System.setProperty(ApiEndpoints.IMAGE_HOST_PROPERTY, server.getImageHost());
+        }
+
+        System.out.printf("API %s, %d players, batch %d, concurrency %d, %d rounds%n",
+                ApiEndpoints.getXtnInfoUrl(), PLAYERS, BATCH_SIZE, CONCURRENCY, ROUNDS);
+
+        List<String> players = new ArrayList<>();
+        for (int i = 0; i < PLAYERS; i++) {
+            players.add(String.format("bench_%05d", i));
+        }
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            runRound(round, players);
+        }
+
+        if (server != null) {
+            System.out.printf("Stand-in server: %d API requests, %d players served, %d image requests, %d image bytes%n",
+                    server.getApiRequests(), server.getPlayersServed(), server.getImageRequests(), server.getImageBytesServed());
+            server.stop();
+        }
+        System.exit(0);
+    }
+
+    private static void runRound(int round, List<String> players) throws Exception {
+        Semaphore permits = new Semaphore(CONCURRENCY);
+        List<Long> latencies = new ArrayList<>();
+        Map<String, AtomicLong> codes = new ConcurrentHashMap<>();
+        Map<String, playerXtnInfoApi.UserInfo> results = new ConcurrentHashMap<>();
+        List<CompletableFuture<?>> requests = new ArrayList<>();
+
+        long start = System.nanoTime();
+        for (int from = 0; from < players.size(); from += BATCH_SIZE) {
+            List<String> batch = players.subList(from, Math.min(players.size(), from + BATCH_SIZE));
+            permits.acquire();
+            long sent = System.nanoTime();
+            requests.add(playerXtnInfoApi.queryUserXtnInfoAsync(new playerXtnInfoApi.QueryUserXtnInfoRequest(new ArrayList<>(batch)))
+                .whenComplete((response, throwable) -> {
+                    long latencyMs = (System.nanoTime() - sent) / 1_000_000;
+                    synchronized (latencies) {
+                        latencies.add(latencyMs);
+                    }
+                    String code = throwable != null ? "exception" : response.getCode();
+                    codes.computeIfAbsent(code, key -> new AtomicLong()).incrementAndGet();
+                    if (response != null && response.isSuccess() && response.getData() != null) {
+                        results.putAll(response.getData());
+                    }
+                    permits.release();
+                }));
+        }
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0])).join();
+        long queryNanos = System.nanoTime() - start;
+
+        // 响应解析时已经启动了图片下载，这里挂到同一个下载任务上（已缓存时立即完成）
+        long imageStart = System.nanoTime();
+        List<CompletableFuture<ImageDownloader.DownloadResult>> downloads = new ArrayList<>();
+        for (Map.Entry<String, playerXtnInfoApi.UserInfo> entry : results.entrySet()) {
+            playerXtnInfoApi.UserInfo userInfo = entry.getValue();
+            if (userInfo.getAvatar() != null) {
+                downloads.add(ImageDownloader.downloadAvatar(userInfo.getAvatar(), entry.getKey()));
+            }
+            if (userInfo.getUserCardUrl() != null) {
+                downloads.add(ImageDownloader.downloadUserCard(userInfo.getUserCardUrl(), entry.getKey()));
+            }
+        }
+        long failedDownloads = downloads.stream().map(CompletableFuture::join).filter(result -> !result.isSuccess()).count();
+        long imageNanos = System.nanoTime() - imageStart;
+
+        long flushStart = System.nanoTime();
+        PlayerDataWriteQueue.flush();
+        long flushNanos = System.nanoTime() - flushStart;
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        double querySeconds = queryNanos / 1_000_000_000.0;
+        System.out.printf("Round %d%n", round);
+        System.out.printf("  queries  %d requests in %.2fs: %.1f req/s, %.1f players/s%n",
+                sorted.length, querySeconds, sorted.length / querySeconds, players.size() / querySeconds);
+        System.out.printf("  latency  p50 %dms, p90 %dms, p99 %dms, max %dms%n",
+                percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1]);
+        System.out.printf("  codes    %s, %d players returned%n", new TreeMap<>(codes), results.size());
+        System.out.printf("  images   %d downloads (%d failed) settled %.2fs after the last response%n",
+                downloads.size(), failedDownloads, imageNanos / 1_000_000_000.0);
+        System.out.printf("  store    write queue flushed in %.1fms%n", flushNanos / 1_000_000.0);
+        for (String stage : XtnInfoPipeline.getStats().split("\n")) {
+            System.out.println("  stage    " + stage);
+        }
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(sorted.length * percentile / 100.0) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -1,5 +1,7 @@
 package com.ninocs.mygo;
 
+import com.ninocs.mygo.api.ApiEndpoints;
+import com.ninocs.mygo.client.data.PlayerDataStore;
 import net.minecraftforge.common.ForgeConfigSpec;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
@@ -10,12 +12,101 @@ import net.minecraftforge.fml.event.config.ModConfigEvent;
 public class Config {
     private static final ForgeConfigSpec.Builder BUILDER = new ForgeConfigSpec.Builder();
 
-    // 在这里添加你的配置项
+    // 玩家数据存储引擎
+    private static final ForgeConfigSpec.EnumValue<PlayerDataStore.Engine> PLAYER_DATA_STORE = BUILDER
+            .comment("玩家数据存储引擎：JSON_FILES为每个玩家一个JSON文件（默认），LOG为单个日志文件加索引（需手动启用，首次启用时自动迁移旧数据）")
+            .defineEnum("playerDataStore", PlayerDataStore.Engine.JSON_FILES);
+
+    // LOG引擎是否通过内存映射读取
+    private static final ForgeConfigSpec.BooleanValue PLAYER_DATA_MMAP_READS = BUILDER
+            .comment("LOG引擎是否以内存映射方式读取玩家数据（读取不产生系统调用）")
+            .define("playerDataMmapReads", true);
+
+    // 玩家扩展信息请求合并窗口（毫秒）
+    private static final ForgeConfigSpec.IntValue XTN_INFO_BATCH_WINDOW_MS = BUILDER
+            .comment("新玩家信息请求的合并窗口（毫秒），窗口内的请求合并为一次批量请求")
+            .defineInRange("xtnInfoBatchWindowMs", 50, 0, 5000);
+
+    // 单次批量请求的最大玩家数
+    private static final ForgeConfigSpec.IntValue XTN_INFO_MAX_BATCH_SIZE = BUILDER
+            .comment("单次批量请求的最大玩家数，达到后立即发送")
+            .defineInRange("xtnInfoMaxBatchSize", 32, 1, 200);
+
+    // 是否记录每次API响应的线路字节数和解压后字节数
+    private static final ForgeConfigSpec.BooleanValue XTN_INFO_LOG_TRANSFER_SIZE = BUILDER
+            .comment("测量模式：记录每次玩家信息API响应的线路字节数与解压后字节数")
+            .define("xtnInfoLogTransferSize", false);
+
+    // 批量查询拆分后单个请求的最大玩家数
+    private static final ForgeConfigSpec.IntValue XTN_INFO_MAX_IDS_PER_REQUEST = BUILDER
+            .comment("批量查询（如进入世界时的全员查询）拆分后单个请求携带的最大玩家数")
+            .defineInRange("xtnInfoMaxIdsPerRequest", 50, 1, 200);
+
+    // 拆分后同时进行的请求数上限
+    private static final ForgeConfigSpec.IntValue XTN_INFO_MAX_CONCURRENT_CHUNKS = BUILDER
+            .comment("批量查询拆分后同时进行的请求数上限")
+            .defineInRange("xtnInfoMaxConcurrentChunks", 4, 1, 16);
+
+    // 单个分片失败后的重试次数
+    private static final ForgeConfigSpec.IntValue XTN_INFO_CHUNK_RETRIES = BUILDER
+            .comment("批量查询中单个分片请求失败后的重试次数，各分片独立重试")
+            .defineInRange("xtnInfoChunkRetries", 2, 0, 5);
+
+    // 交互请求是否启用对冲
+    private static final ForgeConfigSpec.BooleanValue XTN_INFO_HEDGING_ENABLED = BUILDER
+            .comment("当前观察目标的玩家信息请求较慢时是否再发送一个副本请求，取先返回的结果")
+            .define("xtnInfoHedgingEnabled", true);
+
+    // 对冲延迟使用的耗时分位数
+    private static final ForgeConfigSpec.IntValue XTN_INFO_HEDGE_PERCENTILE = BUILDER
+            .comment("请求耗时超过最近请求耗时的该分位数（百分位）仍未返回时发送对冲请求")
+            .defineInRange("xtnInfoHedgePercentile", 95, 50, 99);
+
+    // 对冲请求占交互请求的最大百分比
+    private static final ForgeConfigSpec.IntValue XTN_INFO_HEDGE_MAX_PERCENT = BUILDER
+            .comment("对冲请求数占交互请求数的最大百分比，避免加重API负载")
+            .defineInRange("xtnInfoHedgeMaxPercent", 5, 1, 50);
+
+    // 玩家扩展信息API地址
+    private static final ForgeConfigSpec.ConfigValue<String> XTN_INFO_API_URL = BUILDER
+            .comment("玩家扩展信息API地址（系统属性dfspectatorui.api.url优先）")
+            .define("xtnInfoApiUrl", ApiEndpoints.DEFAULT_XTN_INFO_URL);
+
+    // 图片下载地址替换主机
+    private static final ForgeConfigSpec.ConfigValue<String> IMAGE_HOST_OVERRIDE = BUILDER
+            .comment("下载头像和卡片时替换图片地址的协议、主机和端口，如 http://127.0.0.1:8080，留空表示不替换（系统属性dfspectatorui.image.host优先）")
+            .define("imageHostOverride", "");
 
     static final ForgeConfigSpec SPEC = BUILDER.build();
 
+    public static PlayerDataStore.Engine playerDataStore = PlayerDataStore.Engine.JSON_FILES;
+    public static boolean playerDataMmapReads = true;
+    public static int xtnInfoBatchWindowMs = 50;
+    public static int xtnInfoMaxBatchSize = 32;
+    public static boolean xtnInfoLogTransferSize = false;
+    public static int xtnInfoMaxIdsPerRequest = 50;
+    public static int xtnInfoMaxConcurrentChunks = 4;
+    public static int xtnInfoChunkRetries = 2;
+    public static boolean xtnInfoHedgingEnabled = true;
+    public static int xtnInfoHedgePercentile = 95;
+    public static int xtnInfoHedgeMaxPercent = 5;
+    public static String xtnInfoApiUrl = ApiEndpoints.DEFAULT_XTN_INFO_URL;
+    public static String imageHostOverride = "";
+
     @SubscribeEvent
     static void onLoad(final ModConfigEvent event) {
-        // 在这里加载配置值
+        playerDataStore = PLAYER_DATA_STORE.get();
+        playerDataMmapReads = PLAYER_DATA_MMAP_READS.get();
+        xtnInfoBatchWindowMs = XTN_INFO_BATCH_WINDOW_MS.get();
+        xtnInfoMaxBatchSize = XTN_INFO_MAX_BATCH_SIZE.get();
+        xtnInfoLogTransferSize = XTN_INFO_LOG_TRANSFER_SIZE.get();
+        xtnInfoMaxIdsPerRequest = XTN_INFO_MAX_IDS_PER_REQUEST.get();
+        xtnInfoMaxConcurrentChunks = XTN_INFO_MAX_CONCURRENT_CHUNKS.get();
+        xtnInfoChunkRetries = XTN_INFO_CHUNK_RETRIES.get();
+        xtnInfoHedgingEnabled = XTN_INFO_HEDGING_ENABLED.get();
+        xtnInfoHedgePercentile = XTN_INFO_HEDGE_PERCENTILE.get();
+        xtnInfoHedgeMaxPercent = XTN_INFO_HEDGE_MAX_PERCENT.get();
+        xtnInfoApiUrl = XTN_INFO_API_URL.get();
+        imageHostOverride = IMAGE_HOST_OVERRIDE.get();
     }
 }
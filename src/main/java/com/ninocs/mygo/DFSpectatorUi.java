@@ -1,5 +1,7 @@
 package com.ninocs.mygo;
 
+import com.ninocs.mygo.client.data.PlayerNegativeCache;
+import com.ninocs.mygo.client.data.PlayerUuidIndex;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.event.server.ServerStartingEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
@@ -34,7 +36,9 @@ public class DFSpectatorUi {
 
         @SubscribeEvent
         public static void onClientSetup(FMLClientSetupEvent event) {
-            // 一些客户端设置代码
+            // 预先加载玩家UUID索引和未知玩家负缓存
+            PlayerUuidIndex.load();
+            PlayerNegativeCache.load();
         }
     }
 }
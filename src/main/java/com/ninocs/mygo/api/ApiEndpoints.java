@@ -0,0 +1,72 @@
+package com.ninocs.mygo.api;
+
+import com.ninocs.mygo.Config;
+
+import java.net.URI;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * API和图片服务器地址
+ * 地址来自Config，同名系统属性优先，便于在没有游戏配置的环境中（如基准测试）指向本地替身服务器：
+ *   -Ddfspectatorui.api.url=http://127.0.0.1:8080/user/space/queryUserXtnInfo
+ *   -Ddfspectatorui.image.host=http://127.0.0.1:8080
+ */
+public class ApiEndpoints {
+    private static final Logger logger = Logger.getLogger(ApiEndpoints.class.getName());
+
+    // 默认的玩家扩展信息API地址
+    public static final String DEFAULT_XTN_INFO_URL = "https://api.mcgo.ninocs.com:24264/user/space/queryUserXtnInfo";
+
+    // 覆盖配置的系统属性名
+    public static final String API_URL_PROPERTY = "dfspectatorui.api.url";
+    public static final String IMAGE_HOST_PROPERTY = "dfspectatorui.image.host";
+
+    private ApiEndpoints() {}
+
+    /**
+     * 获取玩家扩展信息API地址
+     */
+    public static String getXtnInfoUrl() {
+        String url = System.getProperty(API_URL_PROPERTY);
+        if (url == null || url.isBlank()) {
+            url = Config.xtnInfoApiUrl;
+        }
+        return url == null || url.isBlank() ? DEFAULT_XTN_INFO_URL : url.trim();
+    }
+
+    /**
+     * 获取替换图片地址用的主机（形如 http://127.0.0.1:8080），未配置时返回null
+     */
+    public static String getImageHostOverride() {
+        String host = System.getProperty(IMAGE_HOST_PROPERTY);
+        if (host == null || host.isBlank()) {
+            host = Config.imageHostOverride;
+        }
+        return host == null || host.isBlank() ? null : host.trim();
+    }
+
+    /**
+     * 按配置改写图片地址的协议、主机和端口，路径和查询参数保持不变
+     * 缓存文件名和SHA256仍按原地址计算，改写只影响实际发起下载的地址
+     *
+     * @param imageUrl API返回的图片地址
+     * @return 实际下载使用的地址，未配置替换主机时原样返回
+     */
+    public static String rewriteImageUrl(String imageUrl) {
+        String hostOverride = getImageHostOverride();
+        if (hostOverride == null || imageUrl == null) {
+            return imageUrl;
+        }
+
+        try {
+            URI original = URI.create(imageUrl);
+            URI host = URI.create(hostOverride);
+            return new URI(host.getScheme(), host.getRawAuthority(), original.getRawPath(), original.getRawQuery(), null)
+                    .toString();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to rewrite image URL: " + imageUrl, e);
+            return imageUrl;
+        }
+    }
+}
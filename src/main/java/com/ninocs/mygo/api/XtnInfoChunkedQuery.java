@@ -0,0 +1,193 @@
+package com.ninocs.mygo.api;
+
+import com.ninocs.mygo.Config;
+import com.ninocs.mygo.util.RequestPriority;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 玩家扩展信息的分片批量查询
+ * 把大批量的玩家列表按Config.xtnInfoMaxIdsPerRequest拆成多个请求，最多同时进行Config.xtnInfoMaxConcurrentChunks个，
+ * 每个分片失败后独立重试，所有分片结束后合并为一个响应
+ * 后台优先级的分片查询在有交互请求进行时暂缓发送下一个分片
+ */
+public class XtnInfoChunkedQuery {
+    private static final Logger logger = Logger.getLogger(XtnInfoChunkedQuery.class.getName());
+
+    // 重试的初始退避时间（毫秒），每次重试加倍
+    private static final long RETRY_BACKOFF_MS = 500L;
+
+    // 让路给交互请求时，再次检查前的等待时间（毫秒）
+    private static final long YIELD_DELAY_MS = 100L;
+
+    private XtnInfoChunkedQuery() {}
+
+    /**
+     * 分片查询多个玩家的扩展信息
+     *
+     * @param playerIds 玩家名称列表
+     * @param priority 请求优先级
+     * @param onChunkComplete 每个分片得到最终结果（成功或重试耗尽）时的回调，参数为该分片的玩家列表和响应，可为null
+     * @return 合并后的响应：全部分片成功时code为"0"；否则code为第一个失败分片的错误码，data中仍包含成功分片的数据
+     */
+    public static CompletableFuture<playerXtnInfoApi.QueryUserXtnInfoResponse> query(
+            List<String> playerIds,
+            RequestPriority priority,
+            BiConsumer<List<String>, playerXtnInfoApi.QueryUserXtnInfoResponse> onChunkComplete) {
+        List<List<String>> chunks = split(playerIds, Math.max(1, Config.xtnInfoMaxIdsPerRequest));
+        if (chunks.isEmpty()) {
+            return CompletableFuture.completedFuture(mergeResponses(List.of()));
+        }
+
+        Queue<List<String>> remaining = new ArrayDeque<>(chunks);
+        List<playerXtnInfoApi.QueryUserXtnInfoResponse> responses = new ArrayList<>();
+        AtomicInteger outstanding = new AtomicInteger(chunks.size());
+        CompletableFuture<playerXtnInfoApi.QueryUserXtnInfoResponse> merged = new CompletableFuture<>();
+
+        if (chunks.size() > 1) {
+            logger.log(Level.FINE, "Splitting xtnInfo query for " + playerIds.size() + " players into " + chunks.size() + " requests");
+        }
+
+        // 每个工作者完成一个分片后从队列取下一个，同时进行的分片数不超过上限
+        int workers = Math.min(chunks.size(), Math.max(1, Config.xtnInfoMaxConcurrentChunks));
+        for (int i = 0; i < workers; i++) {
+            runNext(remaining, priority, responses, outstanding, merged, onChunkComplete);
+        }
+        return merged;
+    }
+
+    private static void runNext(Queue<List<String>> remaining,
+                                RequestPriority priority,
+                                List<playerXtnInfoApi.QueryUserXtnInfoResponse> responses,
+                                AtomicInteger outstanding,
+                                CompletableFuture<playerXtnInfoApi.QueryUserXtnInfoResponse> merged,
+                                BiConsumer<List<String>, playerXtnInfoApi.QueryUserXtnInfoResponse> onChunkComplete) {
+        // 后台分片让路给进行中的交互请求，稍后再尝试
+        if (priority == RequestPriority.BACKGROUND && playerXtnInfoApi.getInteractiveInFlightCount() > 0) {
+            CompletableFuture.delayedExecutor(YIELD_DELAY_MS, TimeUnit.MILLISECONDS)
+                .execute(() -> runNext(remaining, priority, responses, outstanding, merged, onChunkComplete));
+            return;
+        }
+
+        List<String> chunk;
+        synchronized (remaining) {
+            chunk = remaining.poll();
+        }
+        if (chunk == null) {
+            return;
+        }
+
+        queryChunk(chunk, priority, 0).whenComplete((response, throwable) -> {
+            if (throwable != null) {
+                response = playerXtnInfoApi.errorResponse("-1", "Request failed: " + throwable.getMessage());
+            }
+
+            if (onChunkComplete != null) {
+                try {
+                    onChunkComplete.accept(chunk, response);
+                } catch (Exception e) {
+                    logger.log(Level.WARNING, "xtnInfo chunk callback failed", e);
+                }
+            }
+
+            synchronized (responses) {
+                responses.add(response);
+            }
+
+            if (outstanding.decrementAndGet() == 0) {
+                synchronized (responses) {
+                    merged.complete(mergeResponses(responses));
+                }
+            } else {
+                runNext(remaining, priority, responses, outstanding, merged, onChunkComplete);
+            }
+        });
+    }
+
+    private static CompletableFuture<playerXtnInfoApi.QueryUserXtnInfoResponse> queryChunk(List<String> chunk,
+                                                                                         RequestPriority priority,
+                                                                                         int attempt) {
+        return playerXtnInfoApi.queryUserXtnInfoAsync(new playerXtnInfoApi.QueryUserXtnInfoRequest(chunk), priority)
+            .thenCompose(response -> {
+                if (!shouldRetry(response) || attempt >= Config.xtnInfoChunkRetries) {
+                    return CompletableFuture.completedFuture(response);
+                }
+
+                long delay = RETRY_BACKOFF_MS << attempt;
+                logger.log(Level.FINE, "Retrying xtnInfo chunk of " + chunk.size() + " players in " + delay + " ms after code "
+                        + (response == null ? "null" : response.getCode()));
+                return CompletableFuture.supplyAsync(() -> null, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                    .thenCompose(ignored -> queryChunk(chunk, priority, attempt + 1));
+            });
+    }
+
+    /**
+     * 判断分片响应是否值得重试：只重试传输失败（-1 请求失败、-3 IO异常）和服务端的5xx、429
+     * 解析失败、限流、熔断和业务错误码重试也不会成功，直接返回
+     */
+    private static boolean shouldRetry(playerXtnInfoApi.QueryUserXtnInfoResponse response) {
+        if (response == null) {
+            return true;
+        }
+        String code = response.getCode();
+        if ("-1".equals(code) || "-3".equals(code)) {
+            return true;
+        }
+        try {
+            int status = Integer.parseInt(code);
+            return status >= 500 || status == 429;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static List<List<String>> split(List<String> playerIds, int chunkSize) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int start = 0; start < playerIds.size(); start += chunkSize) {
+            chunks.add(List.copyOf(playerIds.subList(start, Math.min(playerIds.size(), start + chunkSize))));
+        }
+        return chunks;
+    }
+
+    private static playerXtnInfoApi.QueryUserXtnInfoResponse mergeResponses(List<playerXtnInfoApi.QueryUserXtnInfoResponse> responses) {
+        Map<String, playerXtnInfoApi.UserInfo> data = new HashMap<>();
+        playerXtnInfoApi.QueryUserXtnInfoResponse firstFailure = null;
+        int failedChunks = 0;
+
+        for (playerXtnInfoApi.QueryUserXtnInfoResponse response : responses) {
+            if (response != null && response.isSuccess()) {
+                if (response.getData() != null) {
+                    data.putAll(response.getData());
+                }
+            } else {
+                failedChunks++;
+                if (firstFailure == null) {
+                    firstFailure = response;
+                }
+            }
+        }
+
+        playerXtnInfoApi.QueryUserXtnInfoResponse merged = new playerXtnInfoApi.QueryUserXtnInfoResponse();
+        if (failedChunks == 0) {
+            merged.setCode("0");
+            merged.setMessage("success");
+        } else {
+            merged.setCode(firstFailure == null ? "-1" : firstFailure.getCode());
+            merged.setMessage(failedChunks + " of " + responses.size() + " chunks failed"
+                    + (firstFailure == null ? "" : ": " + firstFailure.getMessage()));
+        }
+        merged.setData(data);
+        return merged;
+    }
+}
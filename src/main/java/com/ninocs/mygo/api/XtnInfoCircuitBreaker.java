@@ -0,0 +1,169 @@
+package com.ninocs.mygo.api;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 玩家扩展信息API熔断器
+ *   CLOSED    - 正常放行；连续失败达到阈值后打开
+ *   OPEN      - 直接拒绝请求，调用方立即退回到缓存或负缓存结果；冷却时间结束后进入半开
+ *   HALF_OPEN - 只放行一个探测请求，成功则关闭，失败则重新打开并加倍冷却时间
+ */
+public class XtnInfoCircuitBreaker {
+    private static final Logger logger = Logger.getLogger(XtnInfoCircuitBreaker.class.getName());
+
+    // 连续失败多少次后打开
+    private static final int FAILURE_THRESHOLD = 5;
+
+    // 打开后的冷却时间（毫秒），探测失败时加倍，直到上限
+    private static final long INITIAL_OPEN_MS = 10_000L;
+    private static final long MAX_OPEN_MS = 120_000L;
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    // 以下字段由类锁保护
+    private static State state = State.CLOSED;
+    private static int consecutiveFailures = 0;
+    private static long openUntil = 0;
+    private static long openDuration = INITIAL_OPEN_MS;
+    private static boolean probeInFlight = false;
+
+    // 状态转换和拒绝次数统计
+    private static final AtomicLong openedCount = new AtomicLong();
+    private static final AtomicLong halfOpenedCount = new AtomicLong();
+    private static final AtomicLong closedCount = new AtomicLong();
+    private static final AtomicLong rejectedCount = new AtomicLong();
+
+    private XtnInfoCircuitBreaker() {}
+
+    /**
+     * 申请发送一个请求
+     * 获得许可后必须调用onSuccess、onFailure或onAbandoned报告结果
+     *
+     * @return 是否允许发送
+     */
+    public static synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() < openUntil) {
+                rejectedCount.incrementAndGet();
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                rejectedCount.incrementAndGet();
+                return false;
+            }
+            probeInFlight = true;
+        }
+        return true;
+    }
+
+    /**
+     * 报告请求成功
+     */
+    public static synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            openDuration = INITIAL_OPEN_MS;
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    /**
+     * 报告请求失败（网络异常、超时、服务端错误）
+     */
+    public static synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            openDuration = Math.min(openDuration * 2, MAX_OPEN_MS);
+            open();
+        } else if (state == State.CLOSED && consecutiveFailures >= FAILURE_THRESHOLD) {
+            open();
+        }
+    }
+
+    /**
+     * 报告请求既未成功也未失败（如被中断），只释放半开状态下的探测名额
+     */
+    public static synchronized void onAbandoned() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    private static void open() {
+        openUntil = System.currentTimeMillis() + openDuration;
+        transitionTo(State.OPEN);
+    }
+
+    private static void transitionTo(State newState) {
+        if (state == newState) {
+            return;
+        }
+
+        logger.log(Level.INFO, "xtnInfo circuit breaker " + state + " -> " + newState
+                + (newState == State.OPEN ? " for " + openDuration + " ms after " + consecutiveFailures + " consecutive failures" : ""));
+        state = newState;
+        switch (newState) {
+            case OPEN -> openedCount.incrementAndGet();
+            case HALF_OPEN -> halfOpenedCount.incrementAndGet();
+            case CLOSED -> closedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 获取当前状态
+     */
+    public static synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * 获取进入OPEN状态的次数
+     */
+    public static long getOpenedCount() {
+        return openedCount.get();
+    }
+
+    /**
+     * 获取进入HALF_OPEN状态的次数
+     */
+    public static long getHalfOpenedCount() {
+        return halfOpenedCount.get();
+    }
+
+    /**
+     * 获取从HALF_OPEN恢复为CLOSED的次数
+     */
+    public static long getClosedCount() {
+        return closedCount.get();
+    }
+
+    /**
+     * 获取被熔断器拒绝的请求数
+     */
+    public static long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public static String getStats() {
+        return String.format("XtnInfoCircuitBreaker[state=%s, opened=%d, halfOpened=%d, closed=%d, rejected=%d]",
+                getState(), openedCount.get(), halfOpenedCount.get(), closedCount.get(), rejectedCount.get());
+    }
+}
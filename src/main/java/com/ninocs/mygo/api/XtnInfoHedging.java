@@ -0,0 +1,111 @@
+package com.ninocs.mygo.api;
+
+import com.ninocs.mygo.Config;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 玩家扩展信息API的对冲请求策略
+ * 记录最近请求的耗时，交互请求在超过Config.xtnInfoHedgePercentile分位的耗时仍未返回时再发送一个副本，
+ * 对冲请求数不超过交互请求数的Config.xtnInfoHedgeMaxPercent百分比
+ */
+public class XtnInfoHedging {
+    // 保留的最近耗时样本数
+    private static final int SAMPLE_SIZE = 200;
+
+    // 样本不足时使用的对冲延迟，以及对冲延迟的上下限（毫秒）
+    private static final int MIN_SAMPLES = 20;
+    private static final long DEFAULT_DELAY_MS = 500L;
+    private static final long MIN_DELAY_MS = 50L;
+    private static final long MAX_DELAY_MS = 10_000L;
+
+    // 最近的请求耗时（毫秒），环形缓冲区，由类锁保护
+    private static final long[] latencies = new long[SAMPLE_SIZE];
+    private static int sampleCount = 0;
+    private static int nextSample = 0;
+
+    // 统计：交互请求数、发出的对冲请求数、对冲请求先返回的次数
+    private static final AtomicLong primaryRequests = new AtomicLong();
+    private static final AtomicLong hedgedRequests = new AtomicLong();
+    private static final AtomicLong hedgeWins = new AtomicLong();
+
+    private XtnInfoHedging() {}
+
+    /**
+     * 是否启用对冲请求
+     */
+    public static boolean isEnabled() {
+        return Config.xtnInfoHedgingEnabled;
+    }
+
+    /**
+     * 记录一次成功请求的耗时
+     *
+     * @param latencyMs 请求耗时（毫秒）
+     */
+    public static synchronized void recordLatency(long latencyMs) {
+        latencies[nextSample] = latencyMs;
+        nextSample = (nextSample + 1) % SAMPLE_SIZE;
+        sampleCount = Math.min(SAMPLE_SIZE, sampleCount + 1);
+    }
+
+    /**
+     * 获取当前的对冲延迟：最近耗时的配置分位数
+     *
+     * @return 发送对冲请求前等待的时间（毫秒）
+     */
+    public static synchronized long getHedgeDelayMs() {
+        if (sampleCount < MIN_SAMPLES) {
+            return DEFAULT_DELAY_MS;
+        }
+
+        long[] sorted = Arrays.copyOf(latencies, sampleCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(sampleCount * Config.xtnInfoHedgePercentile / 100.0) - 1;
+        long delay = sorted[Math.max(0, Math.min(sampleCount - 1, index))];
+        return Math.max(MIN_DELAY_MS, Math.min(MAX_DELAY_MS, delay));
+    }
+
+    /**
+     * 记录一次可对冲的交互请求
+     */
+    static void onPrimarySent() {
+        primaryRequests.incrementAndGet();
+    }
+
+    /**
+     * 申请发送一个对冲请求，超出流量比例上限时拒绝
+     *
+     * @return 是否允许发送
+     */
+    static synchronized boolean tryAcquireHedge() {
+        if ((hedgedRequests.get() + 1) * 100 > primaryRequests.get() * Config.xtnInfoHedgeMaxPercent) {
+            return false;
+        }
+        hedgedRequests.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 归还tryAcquireHedge申请到的名额（对冲请求最终没有发送，如未通过限流或熔断）
+     */
+    static void releaseHedge() {
+        hedgedRequests.decrementAndGet();
+    }
+
+    /**
+     * 记录一次对冲请求先于原请求返回
+     */
+    static void onHedgeWon() {
+        hedgeWins.incrementAndGet();
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public static String getStats() {
+        return String.format("XtnInfoHedging[primary=%d, hedged=%d, hedgeWins=%d, delay=%dms]",
+                primaryRequests.get(), hedgedRequests.get(), hedgeWins.get(), getHedgeDelayMs());
+    }
+}
@@ -0,0 +1,132 @@
+package com.ninocs.mygo.api;
+
+import com.ninocs.mygo.client.data.PlayerDataStorage;
+import com.ninocs.mygo.downloads.ImageDownloader;
+import com.ninocs.mygo.util.PipelineStage;
+import com.ninocs.mygo.util.RequestPriority;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 玩家扩展信息响应的分阶段处理流水线：解析 → 保存 → 调度图片下载 → 解码纹理
+ * 每个阶段有独立的有界队列和并发上限，慢磁盘或慢图片服务器只会让对应阶段排队，
+ * 不会拖慢解析阶段把元数据交给调用者
+ */
+public class XtnInfoPipeline {
+    private static final Logger logger = Logger.getLogger(XtnInfoPipeline.class.getName());
+
+    // 解析阶段：读取并解析响应体，交互请求的响应先于后台批量查询解析；队列满时拒绝，由调用方关闭响应体并返回错误，
+    // 不能在HttpClient的回调线程上阻塞读取响应体
+    static final PipelineStage decodeStage = new PipelineStage("DFSpectatorUi-XtnInfo-Decode", 2, 256,
+            PipelineStage.OverflowPolicy.REJECT);
+
+    // 保存阶段：更新内存缓存并等待写入队列把数据落盘，占用名额直到写入完成
+    private static final PipelineStage persistStage = new PipelineStage("DFSpectatorUi-XtnInfo-Persist", 2, 1024,
+            PipelineStage.OverflowPolicy.REJECT);
+
+    // 图片阶段：调度头像/卡片下载，占用名额直到下载结束，限制流水线同时挂起的下载数
+    private static final PipelineStage imageStage = new PipelineStage("DFSpectatorUi-XtnInfo-Images", 8, 1024,
+            PipelineStage.OverflowPolicy.REJECT);
+
+    // 纹理阶段：在后台线程中把下载好的图片解码为纹理数据，渲染线程只需上传
+    private static final PipelineStage textureStage = new PipelineStage("DFSpectatorUi-XtnInfo-Texture", 1, 32,
+            PipelineStage.OverflowPolicy.REJECT);
+
+    // 纹理解码回调，由客户端HUD注册；参数为图片的本地路径
+    private static volatile Consumer<String> textureDecoder = null;
+
+    private XtnInfoPipeline() {}
+
+    /**
+     * 注册纹理解码回调
+     * 只有交互和即将查看优先级的玩家图片会被预先解码，后台批量查询不占用纹理内存
+     *
+     * @param decoder 解码回调，参数为图片的本地路径；为null时关闭纹理阶段
+     */
+    public static void setTextureDecoder(Consumer<String> decoder) {
+        textureDecoder = decoder;
+    }
+
+    /**
+     * 把解析出的单个玩家数据交给保存阶段
+     * 保存阶段已满时直接放入写入队列（写入队列按玩家合并，不会无限增长），只是不再计入阶段统计
+     */
+    static void submit(String playerId, playerXtnInfoApi.UserInfo userInfo, RequestPriority priority) {
+        if (!persistStage.submit(() -> persist(playerId, userInfo, priority), priority)) {
+            logger.log(Level.FINE, "Persist stage full, saving " + playerId + " directly");
+            persist(playerId, userInfo, priority);
+        }
+    }
+
+    private static CompletableFuture<Boolean> persist(String playerId, playerXtnInfoApi.UserInfo userInfo, RequestPriority priority) {
+        // 写入队列在后台写入，内存缓存立即可用
+        CompletableFuture<Boolean> saved = PlayerDataStorage.savePlayerDataAsync(playerId, userInfo)
+            .thenApply(result -> {
+                if (!result) {
+                    logger.log(Level.WARNING, "Failed to save player data for playerId: " + playerId + " (Player: " + userInfo.getUserNm() + ")");
+                }
+                return result;
+            });
+
+        // 图片下载不等待落盘
+        if (!imageStage.submit(() -> scheduleImages(playerId, userInfo, priority), priority)) {
+            logger.log(Level.FINE, "Image stage full, skipping image prefetch for " + playerId);
+        }
+        return saved;
+    }
+
+    private static CompletableFuture<Void> scheduleImages(String playerId, playerXtnInfoApi.UserInfo userInfo, RequestPriority priority) {
+        List<CompletableFuture<?>> downloads = new ArrayList<>();
+
+        // 异步下载并缓存玩家头像
+        String avatarUrl = userInfo.getAvatar();
+        if (avatarUrl != null && !avatarUrl.trim().isEmpty()) {
+            downloads.add(ImageDownloader.downloadAvatar(avatarUrl, playerId, null, priority)
+                .thenAccept(result -> decodeTexture(result, priority))
+                .exceptionally(throwable -> {
+                    logger.log(Level.WARNING, "Error caching avatar for player: " + userInfo.getUserNm() + " (" + playerId + ")", throwable);
+                    return null;
+                }));
+        }
+
+        // 异步下载并缓存用户卡片
+        String userCardUrl = userInfo.getUserCardUrl();
+        if (userCardUrl != null && !userCardUrl.trim().isEmpty()) {
+            downloads.add(ImageDownloader.downloadUserCard(userCardUrl, playerId, null, priority)
+                .thenAccept(result -> decodeTexture(result, priority))
+                .exceptionally(throwable -> {
+                    logger.log(Level.WARNING, "Error caching user card for player: " + userInfo.getUserNm() + " (" + playerId + ")", throwable);
+                    return null;
+                }));
+        }
+
+        return CompletableFuture.allOf(downloads.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private static void decodeTexture(ImageDownloader.DownloadResult result, RequestPriority priority) {
+        Consumer<String> decoder = textureDecoder;
+        if (decoder == null || priority == RequestPriority.BACKGROUND || result == null || !result.isSuccess()) {
+            return;
+        }
+
+        String localPath = result.getLocalPath();
+        if (!textureStage.submit(() -> {
+            decoder.accept(localPath);
+            return CompletableFuture.completedFuture(null);
+        }, priority)) {
+            logger.log(Level.FINE, "Texture stage full, skipping pre-decode of " + localPath);
+        }
+    }
+
+    /**
+     * 获取各阶段的统计信息：队列深度、并发数和耗时
+     */
+    public static String getStats() {
+        return String.join("\n", decodeStage.getStats(), persistStage.getStats(), imageStage.getStats(), textureStage.getStats());
+    }
+}
@@ -0,0 +1,114 @@
+package com.ninocs.mygo.api;
+
+import com.ninocs.mygo.util.RequestPriority;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 玩家扩展信息API的自适应令牌桶限流器
+ * 令牌按当前速率补充，桶满时最多允许BURST个请求突发；没有令牌时请求立即被拒绝而不是排队等待
+ * 速率按加性增、乘性减调整：请求成功且不慢时缓慢提高，失败或响应过慢时减半
+ * 低优先级请求需要桶里留有余量才能取走令牌，最后几个令牌留给当前观察目标的请求
+ */
+public class XtnInfoRateLimiter {
+    // 桶容量（允许的突发请求数）
+    private static final double BURST = 10;
+
+    // 速率范围和初始值（请求/秒）
+    private static final double MIN_RATE = 0.5;
+    private static final double MAX_RATE = 20;
+    private static final double INITIAL_RATE = 10;
+
+    // 每次成功后速率的增量
+    private static final double RATE_INCREMENT = 0.5;
+
+    // 响应时间超过该值视为过慢（毫秒）
+    private static final long SLOW_RESPONSE_MS = 5_000L;
+
+    // 各优先级取令牌后桶内至少要保留的令牌数
+    private static final double LIKELY_NEXT_RESERVE = 1;
+    private static final double BACKGROUND_RESERVE = 2;
+
+    // 以下字段由类锁保护
+    private static double rate = INITIAL_RATE;
+    private static double tokens = BURST;
+    private static long lastRefillNanos = System.nanoTime();
+
+    private static final AtomicLong rejectedCount = new AtomicLong();
+
+    private XtnInfoRateLimiter() {}
+
+    /**
+     * 以后台优先级尝试获取一个令牌
+     *
+     * @return 是否获取成功
+     */
+    public static boolean tryAcquire() {
+        return tryAcquire(RequestPriority.BACKGROUND);
+    }
+
+    /**
+     * 按优先级尝试获取一个令牌
+     *
+     * @param priority 请求优先级
+     * @return 是否获取成功
+     */
+    public static synchronized boolean tryAcquire(RequestPriority priority) {
+        long now = System.nanoTime();
+        tokens = Math.min(BURST, tokens + (now - lastRefillNanos) / 1_000_000_000.0 * rate);
+        lastRefillNanos = now;
+
+        double reserve = switch (priority == null ? RequestPriority.BACKGROUND : priority) {
+            case INTERACTIVE -> 0;
+            case LIKELY_NEXT -> LIKELY_NEXT_RESERVE;
+            case BACKGROUND -> BACKGROUND_RESERVE;
+        };
+        if (tokens >= 1 + reserve) {
+            tokens -= 1;
+            return true;
+        }
+        rejectedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * 报告请求成功及其耗时
+     *
+     * @param latencyMs 请求耗时（毫秒）
+     */
+    public static synchronized void onSuccess(long latencyMs) {
+        if (latencyMs > SLOW_RESPONSE_MS) {
+            rate = Math.max(MIN_RATE, rate / 2);
+        } else {
+            rate = Math.min(MAX_RATE, rate + RATE_INCREMENT);
+        }
+    }
+
+    /**
+     * 报告请求失败
+     */
+    public static synchronized void onFailure() {
+        rate = Math.max(MIN_RATE, rate / 2);
+    }
+
+    /**
+     * 获取当前速率（请求/秒）
+     */
+    public static synchronized double getRate() {
+        return rate;
+    }
+
+    /**
+     * 获取被限流拒绝的请求数
+     */
+    public static long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public static String getStats() {
+        return String.format("XtnInfoRateLimiter[rate=%.1f/s, rejected=%d]", getRate(), rejectedCount.get());
+    }
+}
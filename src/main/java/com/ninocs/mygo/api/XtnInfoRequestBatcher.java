@@ -0,0 +1,141 @@
+package com.ninocs.mygo.api;
+
+import com.ninocs.mygo.Config;
+import com.ninocs.mygo.util.RequestPriority;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 玩家扩展信息请求聚合器
+ * 在一个短时间窗口内收集单个玩家的查询请求，合并为一次批量请求发送，
+ * 再把每个玩家的结果分发回各自调用方的Future
+ * 窗口长度和单批最大玩家数见Config中的xtnInfoBatchWindowMs和xtnInfoMaxBatchSize
+ * 交互优先级的请求不等待窗口，连同已收集的请求立即发送；整批按其中最高的优先级发送
+ */
+public class XtnInfoRequestBatcher {
+    private static final Logger logger = Logger.getLogger(XtnInfoRequestBatcher.class.getName());
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "DFSpectatorUi-XtnInfo-Batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 当前窗口内等待发送的玩家，保持请求顺序（由类锁保护）
+    private static Map<String, CompletableFuture<playerXtnInfoApi.UserInfo>> pending = new LinkedHashMap<>();
+
+    // 当前窗口内请求的最高优先级（由类锁保护）
+    private static RequestPriority pendingPriority = RequestPriority.BACKGROUND;
+
+    // 当前窗口的定时发送任务
+    private static ScheduledFuture<?> scheduledFlush;
+
+    private XtnInfoRequestBatcher() {}
+
+    /**
+     * 请求单个玩家的扩展信息，与同一窗口内的其他请求合并发送
+     *
+     * @param playerName 玩家名称
+     * @return 玩家信息的Future，API没有该玩家时结果为null，请求失败时异常完成
+     */
+    public static CompletableFuture<playerXtnInfoApi.UserInfo> request(String playerName) {
+        return request(playerName, RequestPriority.BACKGROUND);
+    }
+
+    /**
+     * 按指定优先级请求单个玩家的扩展信息
+     *
+     * @param playerName 玩家名称
+     * @param priority 请求优先级，交互优先级会立即发送当前窗口
+     * @return 玩家信息的Future，API没有该玩家时结果为null，请求失败时异常完成
+     */
+    public static CompletableFuture<playerXtnInfoApi.UserInfo> request(String playerName, RequestPriority priority) {
+        if (playerName == null || playerName.trim().isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Map<String, CompletableFuture<playerXtnInfoApi.UserInfo>> batchToSend = null;
+        RequestPriority batchPriority = null;
+        CompletableFuture<playerXtnInfoApi.UserInfo> future;
+
+        synchronized (XtnInfoRequestBatcher.class) {
+            future = pending.computeIfAbsent(playerName, name -> new CompletableFuture<>());
+            pendingPriority = RequestPriority.highest(pendingPriority, priority);
+
+            if (pendingPriority == RequestPriority.INTERACTIVE
+                    || pending.size() >= Math.max(1, Config.xtnInfoMaxBatchSize)) {
+                // 交互请求或达到单批上限，立即发送
+                batchPriority = pendingPriority;
+                batchToSend = takePending();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = scheduler.schedule(XtnInfoRequestBatcher::flush,
+                        Math.max(0, Config.xtnInfoBatchWindowMs), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (batchToSend != null) {
+            send(batchToSend, batchPriority);
+        }
+        return future;
+    }
+
+    /**
+     * 立即发送当前窗口内的所有请求
+     */
+    public static void flush() {
+        Map<String, CompletableFuture<playerXtnInfoApi.UserInfo>> batch;
+        RequestPriority batchPriority;
+        synchronized (XtnInfoRequestBatcher.class) {
+            batchPriority = pendingPriority;
+            batch = takePending();
+        }
+        send(batch, batchPriority);
+    }
+
+    private static Map<String, CompletableFuture<playerXtnInfoApi.UserInfo>> takePending() {
+        Map<String, CompletableFuture<playerXtnInfoApi.UserInfo>> batch = pending;
+        pending = new LinkedHashMap<>();
+        pendingPriority = RequestPriority.BACKGROUND;
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    private static void send(Map<String, CompletableFuture<playerXtnInfoApi.UserInfo>> batch, RequestPriority priority) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<String> playerIds = new ArrayList<>(batch.keySet());
+        logger.log(Level.FINE, "Sending batched xtnInfo request for " + playerIds.size() + " players at " + priority);
+
+        playerXtnInfoApi.queryUserXtnInfoAsync(new playerXtnInfoApi.QueryUserXtnInfoRequest(playerIds), priority)
+            .whenComplete((response, throwable) -> {
+                if (throwable == null && (response == null || !response.isSuccess())) {
+                    throwable = new IOException(response == null ? "Empty xtnInfo response"
+                            : "xtnInfo query failed: " + response.getCode() + " - " + response.getMessage());
+                }
+
+                for (Map.Entry<String, CompletableFuture<playerXtnInfoApi.UserInfo>> entry : batch.entrySet()) {
+                    if (throwable != null) {
+                        entry.getValue().completeExceptionally(throwable);
+                    } else {
+                        entry.getValue().complete(response.getUserInfo(entry.getKey()));
+                    }
+                }
+            });
+    }
+}
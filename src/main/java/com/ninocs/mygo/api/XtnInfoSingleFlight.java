@@ -0,0 +1,236 @@
+package com.ninocs.mygo.api;
+
+import com.ninocs.mygo.util.RequestPriority;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 玩家扩展信息查询的single-flight登记表
+ * 同一玩家同时只会有一个进行中的查询，后来的调用方直接挂到已有的Future上，不再发起新的HTTP请求
+ * 单个玩家的查询交给XtnInfoRequestBatcher合并发送，批量查询交给XtnInfoChunkedQuery分片发送
+ * 交互优先级的查询遇到低优先级的进行中查询时会立即单独发送一次，先到的结果完成共享的Future
+ */
+public class XtnInfoSingleFlight {
+    private static final Logger logger = Logger.getLogger(XtnInfoSingleFlight.class.getName());
+
+    // 进行中的查询：玩家名 -> 结果Future
+    private static final ConcurrentHashMap<String, CompletableFuture<playerXtnInfoApi.UserInfo>> inFlight = new ConcurrentHashMap<>();
+
+    // 以交互优先级发起或已被提升为交互优先级的进行中查询
+    private static final Set<CompletableFuture<playerXtnInfoApi.UserInfo>> interactiveQueries = ConcurrentHashMap.newKeySet();
+
+    // 统计：发起的玩家查询数、挂到已有查询上的玩家查询数、被提升为交互优先级的查询数
+    private static final AtomicLong startedQueries = new AtomicLong();
+    private static final AtomicLong sharedQueries = new AtomicLong();
+    private static final AtomicLong promotedQueries = new AtomicLong();
+
+    private XtnInfoSingleFlight() {}
+
+    /**
+     * 查询单个玩家的扩展信息
+     *
+     * @param playerName 玩家名称
+     * @return 玩家信息的Future，API没有该玩家时结果为null，请求失败时异常完成
+     */
+    public static CompletableFuture<playerXtnInfoApi.UserInfo> query(String playerName) {
+        return query(playerName, RequestPriority.BACKGROUND);
+    }
+
+    /**
+     * 按指定优先级查询单个玩家的扩展信息
+     *
+     * @param playerName 玩家名称
+     * @param priority 请求优先级
+     * @return 玩家信息的Future，API没有该玩家时结果为null，请求失败时异常完成
+     */
+    public static CompletableFuture<playerXtnInfoApi.UserInfo> query(String playerName, RequestPriority priority) {
+        if (playerName == null || playerName.trim().isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<playerXtnInfoApi.UserInfo> created = new CompletableFuture<>();
+        CompletableFuture<playerXtnInfoApi.UserInfo> existing = inFlight.putIfAbsent(playerName, created);
+        if (existing != null) {
+            sharedQueries.incrementAndGet();
+            if (priority == RequestPriority.INTERACTIVE) {
+                promote(playerName, existing);
+            }
+            return existing;
+        }
+
+        if (priority == RequestPriority.INTERACTIVE) {
+            interactiveQueries.add(created);
+        }
+        startedQueries.incrementAndGet();
+        XtnInfoRequestBatcher.request(playerName, priority)
+            .whenComplete((userInfo, throwable) -> complete(playerName, created, userInfo, throwable));
+        return created;
+    }
+
+    /**
+     * 如果该玩家有进行中的查询，把它提升为交互优先级；没有进行中的查询时不做任何事
+     *
+     * @param playerName 玩家名称
+     */
+    public static void promote(String playerName) {
+        if (playerName == null) {
+            return;
+        }
+        CompletableFuture<playerXtnInfoApi.UserInfo> existing = inFlight.get(playerName);
+        if (existing != null) {
+            promote(playerName, existing);
+        }
+    }
+
+    /**
+     * 把低优先级的进行中查询提升为交互优先级：立即单独发送一次查询，
+     * 成功时直接完成共享的Future；失败时不影响原查询，由原查询给出结果
+     */
+    private static void promote(String playerName, CompletableFuture<playerXtnInfoApi.UserInfo> existing) {
+        // 已经是交互优先级（或已被提升过）的查询不再重复发送
+        if (existing.isDone() || !interactiveQueries.add(existing)) {
+            return;
+        }
+        if (existing.isDone()) {
+            // 登记期间原查询已完成
+            interactiveQueries.remove(existing);
+            return;
+        }
+
+        promotedQueries.incrementAndGet();
+        XtnInfoRequestBatcher.request(playerName, RequestPriority.INTERACTIVE)
+            .whenComplete((userInfo, throwable) -> {
+                if (throwable == null) {
+                    complete(playerName, existing, userInfo, null);
+                }
+            });
+    }
+
+    /**
+     * 批量查询多个玩家的扩展信息
+     * 已在查询中的玩家挂到已有Future上，其余玩家分片并发发送，各分片独立重试
+     *
+     * @param playerNames 玩家名称列表
+     * @return 玩家名到玩家信息的映射（API没有的玩家值为null），任一查询失败时异常完成
+     */
+    public static CompletableFuture<Map<String, playerXtnInfoApi.UserInfo>> queryAll(List<String> playerNames) {
+        return queryAll(playerNames, RequestPriority.BACKGROUND);
+    }
+
+    /**
+     * 按指定优先级批量查询多个玩家的扩展信息
+     *
+     * @param playerNames 玩家名称列表
+     * @param priority 请求优先级
+     * @return 玩家名到玩家信息的映射（API没有的玩家值为null），任一查询失败时异常完成
+     */
+    public static CompletableFuture<Map<String, playerXtnInfoApi.UserInfo>> queryAll(List<String> playerNames,
+                                                                                     RequestPriority priority) {
+        Map<String, CompletableFuture<playerXtnInfoApi.UserInfo>> futures = new LinkedHashMap<>();
+        Map<String, CompletableFuture<playerXtnInfoApi.UserInfo>> toSend = new LinkedHashMap<>();
+
+        for (String playerName : playerNames) {
+            if (playerName == null || playerName.trim().isEmpty() || futures.containsKey(playerName)) {
+                continue;
+            }
+
+            CompletableFuture<playerXtnInfoApi.UserInfo> created = new CompletableFuture<>();
+            CompletableFuture<playerXtnInfoApi.UserInfo> existing = inFlight.putIfAbsent(playerName, created);
+            if (existing != null) {
+                sharedQueries.incrementAndGet();
+                futures.put(playerName, existing);
+            } else {
+                startedQueries.incrementAndGet();
+                futures.put(playerName, created);
+                toSend.put(playerName, created);
+            }
+        }
+
+        if (!toSend.isEmpty()) {
+            sendBulk(toSend, priority);
+        }
+
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]))
+            .thenApply(ignored -> {
+                Map<String, playerXtnInfoApi.UserInfo> results = new HashMap<>();
+                futures.forEach((playerName, future) -> results.put(playerName, future.join()));
+                return results;
+            });
+    }
+
+    private static void sendBulk(Map<String, CompletableFuture<playerXtnInfoApi.UserInfo>> toSend, RequestPriority priority) {
+        // 大批量查询按分片发送，每个分片结束后立即完成其中玩家的Future，不等待其他分片
+        XtnInfoChunkedQuery.query(new ArrayList<>(toSend.keySet()), priority, (chunk, response) -> {
+            Throwable throwable = null;
+            if (response == null || !response.isSuccess()) {
+                throwable = new IOException(response == null ? "Empty xtnInfo response"
+                        : "xtnInfo query failed: " + response.getCode() + " - " + response.getMessage());
+            }
+
+            for (String playerName : chunk) {
+                playerXtnInfoApi.UserInfo userInfo = throwable == null ? response.getUserInfo(playerName) : null;
+                complete(playerName, toSend.get(playerName), userInfo, throwable);
+            }
+        });
+    }
+
+    private static void complete(String playerName, CompletableFuture<playerXtnInfoApi.UserInfo> future,
+                                 playerXtnInfoApi.UserInfo userInfo, Throwable throwable) {
+        // 先移除登记再完成，完成后到达的调用方会发起新的查询
+        inFlight.remove(playerName, future);
+        interactiveQueries.remove(future);
+        if (throwable != null) {
+            logger.log(Level.FINE, "xtnInfo query failed for player: " + playerName, throwable);
+            future.completeExceptionally(throwable);
+        } else {
+            future.complete(userInfo);
+        }
+    }
+
+    /**
+     * 获取实际发起的玩家查询数
+     */
+    public static long getStartedQueryCount() {
+        return startedQueries.get();
+    }
+
+    /**
+     * 获取挂到已有查询上、因此省下的玩家查询数
+     */
+    public static long getSharedQueryCount() {
+        return sharedQueries.get();
+    }
+
+    /**
+     * 获取被提升为交互优先级的查询数
+     */
+    public static long getPromotedQueryCount() {
+        return promotedQueries.get();
+    }
+
+    /**
+     * 获取当前进行中的玩家查询数
+     */
+    public static int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public static String getStats() {
+        return String.format("XtnInfoSingleFlight[started=%d, shared=%d, promoted=%d, inFlight=%d]",
+                startedQueries.get(), sharedQueries.get(), promotedQueries.get(), inFlight.size());
+    }
+}
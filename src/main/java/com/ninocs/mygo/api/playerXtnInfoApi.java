@@ -1,29 +1,64 @@
 package com.ninocs.mygo.api;
 
+import java.io.EOFException;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import java.util.logging.Level;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonSyntaxException;
-import com.ninocs.mygo.client.data.PlayerDataStorage;
-import com.ninocs.mygo.downloads.ImageDownloader;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import com.ninocs.mygo.Config;
+import com.ninocs.mygo.client.data.PlayerDataCodec;
+import com.ninocs.mygo.client.data.PlayerNegativeCache;
+import com.ninocs.mygo.util.RequestPriority;
 
 public class playerXtnInfoApi {
-    private static final String API_URL = "https://api.mcgo.ninocs.com:24264/user/space/queryUserXtnInfo";
+    // HttpClient自己的小型固定线程池，只做非阻塞的回调和响应体投递；
+    // 不能与解析阶段共用，否则解析线程全部阻塞在读取响应体时没有线程再投递数据，造成死锁
+    private static final ExecutorService httpExecutor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "DFSpectatorUi-XtnInfo-HTTP");
+        thread.setDaemon(true);
+        return thread;
+    });
     private static final HttpClient httpClient = HttpClient.newBuilder()
             .connectTimeout(Duration.ofSeconds(10))
+            .version(HttpClient.Version.HTTP_2)
+            .executor(httpExecutor)
             .build();
-    private static final Gson gson = new GsonBuilder().create();
+    private static final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(UserInfo.class, PlayerDataCodec.USER_INFO)
+            .registerTypeAdapter(XtnInfo.class, PlayerDataCodec.XTN_INFO)
+            .create();
     private static final Logger logger = Logger.getLogger(playerXtnInfoApi.class.getName());
+    // 进行中的交互优先级请求数，大于0时后台分片查询暂缓发送下一个分片
+    private static final AtomicInteger interactiveInFlight = new AtomicInteger();
 
     // 请求参数类
     public static class QueryUserXtnInfoRequest {
@@ -255,7 +290,301 @@ public class playerXtnInfoApi {
     public static QueryUserXtnInfoResponse queryUserXtnInfo(QueryUserXtnInfoRequest request) 
             throws IOException, InterruptedException {
         
-        // 参数验证
+        validateRequest(request);
+        
+        // 限流或熔断时立即返回，调用方退回到缓存数据
+        QueryUserXtnInfoResponse rejection = admitRequest(RequestPriority.BACKGROUND);
+        if (rejection != null) {
+            return rejection;
+        }
+        
+        long startNanos = System.nanoTime();
+        try {
+            // 发送请求，响应体以流的形式边接收边解析
+            HttpResponse<InputStream> response = httpClient.send(buildHttpRequest(request), HttpResponse.BodyHandlers.ofInputStream());
+            
+            return recordOutcome(readResponse(request, response, RequestPriority.BACKGROUND, null),
+                    RequestPriority.BACKGROUND, startNanos);
+            
+        } catch (IOException e) {
+            recordFailure();
+            logger.log(Level.SEVERE, "IO exception during API request", e);
+            throw e;
+        } catch (InterruptedException e) {
+            XtnInfoCircuitBreaker.onAbandoned();
+            logger.log(Level.SEVERE, "Request was interrupted", e);
+            Thread.currentThread().interrupt(); // 恢复中断状态
+            throw e;
+        } catch (Exception e) {
+            recordFailure();
+            logger.log(Level.SEVERE, "Unexpected exception during API request", e);
+            throw new RuntimeException("Unexpected error during API request", e);
+        }
+    }
+
+    /**
+     * 查询用户扩展信息 - 异步方法
+     * 基于HttpClient.sendAsync，等待响应期间不占用任何线程；
+     * HttpClient使用自己的小型固定线程池，只做非阻塞的回调和响应体投递，
+     * 收到响应头后，响应体的流式解析交给流水线的解析阶段（有界队列，满时返回-4而不是阻塞HttpClient的线程）
+     * @param request 请求参数
+     * @return CompletableFuture包装的响应结果
+     */
+    public static CompletableFuture<QueryUserXtnInfoResponse> queryUserXtnInfoAsync(QueryUserXtnInfoRequest request) {
+        return queryUserXtnInfoAsync(request, RequestPriority.BACKGROUND);
+    }
+
+    /**
+     * 按指定优先级查询用户扩展信息 - 异步方法
+     * 高优先级请求可以使用限流器为其保留的令牌，进行中的交互请求会让后台分片查询暂缓发送，
+     * 响应中玩家的头像和卡片也按同一优先级下载
+     * @param request 请求参数
+     * @param priority 请求优先级
+     * @return CompletableFuture包装的响应结果
+     */
+    public static CompletableFuture<QueryUserXtnInfoResponse> queryUserXtnInfoAsync(QueryUserXtnInfoRequest request,
+                                                                                    RequestPriority priority) {
+        HttpRequest httpRequest;
+        try {
+            validateRequest(request);
+            httpRequest = buildHttpRequest(request);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Unexpected exception in async request", e);
+            return CompletableFuture.completedFuture(errorResponse("-1", "Request failed: " + e.getMessage()));
+        }
+        
+        // 限流或熔断时立即返回，调用方退回到缓存数据
+        QueryUserXtnInfoResponse rejection = admitRequest(priority);
+        if (rejection != null) {
+            return CompletableFuture.completedFuture(rejection);
+        }
+        
+        if (priority == RequestPriority.INTERACTIVE && XtnInfoHedging.isEnabled()) {
+            return queryHedged(request, httpRequest);
+        }
+        return sendQuery(request, httpRequest, priority).result();
+    }
+
+    /**
+     * 一次已发出的查询：响应结果以及可以中止的底层HTTP交换
+     */
+    private record QueryAttempt(CompletableFuture<QueryUserXtnInfoResponse> result,
+                                CompletableFuture<HttpResponse<InputStream>> exchange,
+                                AtomicBoolean abandoned) {
+        /**
+         * 放弃这次查询：中止HTTP交换，结果不计入熔断器和限流器；
+         * 已经在解析的响应体会在下一个玩家之前停止读取并关闭，不再保存数据
+         */
+        void abandon() {
+            abandoned.set(true);
+            exchange.cancel(true);
+        }
+    }
+
+    /**
+     * 发送一次已通过准入的查询，并向熔断器和限流器报告结果
+     */
+    private static QueryAttempt sendQuery(QueryUserXtnInfoRequest request, HttpRequest httpRequest, RequestPriority priority) {
+        boolean interactive = priority == RequestPriority.INTERACTIVE;
+        if (interactive) {
+            interactiveInFlight.incrementAndGet();
+        }
+        
+        AtomicBoolean abandoned = new AtomicBoolean();
+        long startNanos = System.nanoTime();
+        CompletableFuture<HttpResponse<InputStream>> exchange = httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+        CompletableFuture<QueryUserXtnInfoResponse> result = exchange
+                .thenCompose(response -> parseAsync(request, response, priority, abandoned))
+                .whenComplete((response, throwable) -> {
+                    if (interactive) {
+                        interactiveInFlight.decrementAndGet();
+                    }
+                    if (abandoned.get()) {
+                        // 被对冲请求取代的查询既不算成功也不算失败
+                        XtnInfoCircuitBreaker.onAbandoned();
+                    } else if (throwable != null) {
+                        recordFailure();
+                    } else {
+                        recordOutcome(response, priority, startNanos);
+                    }
+                })
+                .exceptionally(throwable -> {
+                    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                            ? throwable.getCause() : throwable;
+                    if (abandoned.get()) {
+                        return errorResponse("-7", "Request abandoned");
+                    }
+                    if (cause instanceof IOException) {
+                        logger.log(Level.SEVERE, "IO exception in async request", cause);
+                        return errorResponse("-3", "IO exception: " + cause.getMessage());
+                    }
+                    logger.log(Level.SEVERE, "Unexpected exception in async request", cause);
+                    return errorResponse("-1", "Request failed: " + cause.getMessage());
+                });
+        return new QueryAttempt(result, exchange, abandoned);
+    }
+
+    /**
+     * 对冲查询：原请求超过对冲延迟仍未返回时再发送一个副本，
+     * 取先返回的成功结果并中止另一个请求；两个都失败时返回后失败的结果
+     */
+    private static CompletableFuture<QueryUserXtnInfoResponse> queryHedged(QueryUserXtnInfoRequest request, HttpRequest httpRequest) {
+        CompletableFuture<QueryUserXtnInfoResponse> winner = new CompletableFuture<>();
+        List<QueryAttempt> attempts = new ArrayList<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        
+        XtnInfoHedging.onPrimarySent();
+        QueryAttempt primary = sendQuery(request, httpRequest, RequestPriority.INTERACTIVE);
+        synchronized (attempts) {
+            attempts.add(primary);
+        }
+        primary.result().thenAccept(response -> settleHedged(winner, attempts, primary, response, outstanding, false));
+        
+        CompletableFuture.delayedExecutor(XtnInfoHedging.getHedgeDelayMs(), TimeUnit.MILLISECONDS).execute(() -> {
+            if (winner.isDone() || !XtnInfoHedging.tryAcquireHedge()) {
+                return;
+            }
+            // 对冲请求同样需要通过限流器和熔断器；未通过时归还对冲名额，不计入对冲比例
+            if (admitRequest(RequestPriority.INTERACTIVE) != null) {
+                XtnInfoHedging.releaseHedge();
+                return;
+            }
+            
+            logger.log(Level.FINE, "Sending hedged xtnInfo request for " + request.getPlayerIds().size() + " players");
+            outstanding.incrementAndGet();
+            QueryAttempt hedge = sendQuery(request, httpRequest, RequestPriority.INTERACTIVE);
+            synchronized (attempts) {
+                attempts.add(hedge);
+            }
+            hedge.result().thenAccept(response -> settleHedged(winner, attempts, hedge, response, outstanding, true));
+            
+            // 发送期间原请求已经返回
+            if (winner.isDone()) {
+                hedge.abandon();
+            }
+        });
+        return winner;
+    }
+
+    private static void settleHedged(CompletableFuture<QueryUserXtnInfoResponse> winner, List<QueryAttempt> attempts,
+                                     QueryAttempt finished, QueryUserXtnInfoResponse response,
+                                     AtomicInteger outstanding, boolean isHedge) {
+        boolean last = outstanding.decrementAndGet() == 0;
+        if (winner.isDone() || finished.abandoned().get()) {
+            return;
+        }
+        
+        // 传输失败时如果还有另一个请求未返回，则等待它
+        boolean transportFailure = response == null || "-1".equals(response.getCode()) || "-3".equals(response.getCode());
+        if (transportFailure && !last) {
+            return;
+        }
+        
+        if (winner.complete(response)) {
+            if (isHedge) {
+                XtnInfoHedging.onHedgeWon();
+            }
+            synchronized (attempts) {
+                for (QueryAttempt attempt : attempts) {
+                    if (attempt != finished && !attempt.result().isDone()) {
+                        attempt.abandon();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 把响应体的读取和解析交给流水线的解析阶段，按请求优先级排队
+     * 解析阶段已满时关闭响应体并返回-4，而不是在HttpClient的线程上阻塞读取
+     */
+    private static CompletableFuture<QueryUserXtnInfoResponse> parseAsync(QueryUserXtnInfoRequest request,
+                                                                         HttpResponse<InputStream> response,
+                                                                         RequestPriority priority,
+                                                                         AtomicBoolean abandoned) {
+        CompletableFuture<QueryUserXtnInfoResponse> parsed = new CompletableFuture<>();
+        boolean accepted = XtnInfoPipeline.decodeStage.submit(() -> {
+            try {
+                parsed.complete(readResponse(request, response, priority, abandoned));
+            } catch (Throwable e) {
+                parsed.completeExceptionally(e);
+            }
+            return CompletableFuture.completedFuture(null);
+        }, priority);
+        if (!accepted) {
+            try {
+                response.body().close();
+            } catch (IOException closeException) {
+                logger.log(Level.FINE, "Failed to close rejected xtnInfo response body", closeException);
+            }
+            logger.log(Level.WARNING, "xtnInfo response parser is saturated, dropping response");
+            return CompletableFuture.completedFuture(errorResponse("-4", "Response parser is busy"));
+        }
+        return parsed;
+    }
+
+    /**
+     * 请求准入：先经过令牌桶限流，再经过熔断器
+     * @return 被拒绝时返回对应的错误响应（-5 熔断器打开，-6 被限流），允许发送时返回null
+     */
+    private static QueryUserXtnInfoResponse admitRequest(RequestPriority priority) {
+        if (!XtnInfoRateLimiter.tryAcquire(priority)) {
+            logger.log(Level.FINE, "xtnInfo request rejected by rate limiter");
+            return errorResponse("-6", "Rate limited: " + XtnInfoRateLimiter.getStats());
+        }
+        if (!XtnInfoCircuitBreaker.tryAcquire()) {
+            logger.log(Level.FINE, "xtnInfo request rejected by open circuit breaker");
+            return errorResponse("-5", "Circuit breaker open: " + XtnInfoCircuitBreaker.getState());
+        }
+        return null;
+    }
+
+    /**
+     * 根据响应结果向熔断器和限流器报告请求结果
+     * 服务端错误（5xx、429）和响应解析失败视为失败；本地拒绝（-4解析阶段已满、-5熔断、-6限流、-7被放弃）
+     * 没有得到服务端的结果，既不算成功也不算失败，也不计入耗时；其余视为成功
+     * 对冲延迟只参考交互请求的耗时，后台批量查询的响应体更大，会把对冲延迟拉高
+     */
+    private static QueryUserXtnInfoResponse recordOutcome(QueryUserXtnInfoResponse result, RequestPriority priority,
+                                                          long startNanos) {
+        int status = -1;
+        try {
+            status = Integer.parseInt(result.getCode());
+        } catch (NumberFormatException ignored) {
+            // 业务状态码不是数字时按成功处理
+        }
+        
+        if (isLocalRejection(status)) {
+            XtnInfoCircuitBreaker.onAbandoned();
+        } else if (status >= 500 || status == 429 || status == -2) {
+            recordFailure();
+        } else {
+            long latencyMs = (System.nanoTime() - startNanos) / 1_000_000;
+            XtnInfoCircuitBreaker.onSuccess();
+            XtnInfoRateLimiter.onSuccess(latencyMs);
+            if (priority == RequestPriority.INTERACTIVE) {
+                XtnInfoHedging.recordLatency(latencyMs);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 判断状态码是否为本地产生的拒绝（-4至-7），而不是服务端或网络的结果
+     */
+    private static boolean isLocalRejection(int status) {
+        return status <= -4 && status >= -7;
+    }
+
+    private static void recordFailure() {
+        XtnInfoCircuitBreaker.onFailure();
+        XtnInfoRateLimiter.onFailure();
+    }
+
+    /**
+     * 校验请求参数
+     */
+    private static void validateRequest(QueryUserXtnInfoRequest request) {
         if (request == null) {
             logger.log(Level.WARNING, "Request parameter is null");
             throw new IllegalArgumentException("Request parameter cannot be null");
@@ -265,127 +594,280 @@ public class playerXtnInfoApi {
             logger.log(Level.WARNING, "PlayerIds list is null or empty");
             throw new IllegalArgumentException("PlayerIds list cannot be null or empty");
         }
+    }
+
+    /**
+     * 构建HTTP请求
+     */
+    private static HttpRequest buildHttpRequest(QueryUserXtnInfoRequest request) {
+        // 将请求对象转换为JSON字符串
+        String requestBody = gson.toJson(request);
         
-        try {
-            // 将请求对象转换为JSON字符串
-            String requestBody = gson.toJson(request);
-            
-            // 构建HTTP请求
-            var httpRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(API_URL))
-                    .header("Content-Type", "application/json")
-                    .header("Accept", "application/json")
-                    .timeout(Duration.ofSeconds(30))
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBody))
-                    .build();
-            
-            // 发送请求并获取响应
-            HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-            
+        return HttpRequest.newBuilder()
+                .uri(URI.create(ApiEndpoints.getXtnInfoUrl()))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip, deflate")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(requestBody))
+                .build();
+    }
+
+    /**
+     * 检查HTTP状态码并从响应流中增量解析响应JSON
+     * data中的每个玩家一解码出来就立即交给下游（保存数据、预取图片），不等待整个响应体
+     * 如果code字段出现在data之后，则解析完成后确认成功再交给下游
+     * @param priority 请求优先级，头像和卡片按该优先级下载
+     * @param abandoned 查询被对冲请求取代时置位，此时停止读取并关闭响应体，不再保存数据；同步查询为null
+     * @throws IOException 读取响应体时的网络异常
+     */
+    private static QueryUserXtnInfoResponse readResponse(QueryUserXtnInfoRequest request, HttpResponse<InputStream> response,
+                                                         RequestPriority priority, AtomicBoolean abandoned) 
+            throws IOException {
+        String contentEncoding = response.headers().firstValue("Content-Encoding").orElse("identity");
+        CountingInputStream wireCounter = null;
+        CountingInputStream decodedCounter = null;
+        
+        try (InputStream wire = response.body()) {
             // 检查HTTP状态码
             if (response.statusCode() < 200 || response.statusCode() >= 300) {
                 logger.log(Level.WARNING, "HTTP request failed with status code: " + response.statusCode());
-                var errorResponse = new QueryUserXtnInfoResponse();
-                errorResponse.setCode(String.valueOf(response.statusCode()));
-                errorResponse.setMessage("HTTP request failed with status: " + response.statusCode());
-                return errorResponse;
+                return errorResponse(String.valueOf(response.statusCode()), "HTTP request failed with status: " + response.statusCode());
             }
             
-            // 解析响应JSON为对象
-            QueryUserXtnInfoResponse result;
-            try {
-                result = gson.fromJson(response.body(), QueryUserXtnInfoResponse.class);
-            } catch (JsonSyntaxException e) {
-                logger.log(Level.SEVERE, "Failed to parse JSON response", e);
-                result = new QueryUserXtnInfoResponse();
-                result.setCode("-2");
-                result.setMessage("Failed to parse JSON response: " + e.getMessage());
-                return result;
+            // 测量模式下分别统计线路字节数和解压后的字节数
+            InputStream raw = wire;
+            if (Config.xtnInfoLogTransferSize) {
+                raw = wireCounter = new CountingInputStream(wire);
             }
             
-            // 如果解析失败，创建一个包含原始响应的结果对象
-            if (result == null) {
-                logger.log(Level.WARNING, "Parsed result is null");
-                result = new QueryUserXtnInfoResponse();
-                result.setCode(String.valueOf(response.statusCode()));
-                result.setMessage("Failed to parse response: " + response.body());
-            } else {
-                // 自动保存每个玩家的数据到JSON文件
-                if (result.isSuccess() && result.getData() != null) {
-                    result.getData().forEach((playerId, userInfo) -> {
-                        // 保存单个玩家的完整数据
-                        boolean saved = PlayerDataStorage.savePlayerData(playerId, userInfo);
-                        if (saved) {
-                            // 异步下载并缓存玩家头像
-                            String avatarUrl = userInfo.getAvatar();
-                            if (avatarUrl != null && !avatarUrl.trim().isEmpty()) {
-                                ImageDownloader.downloadAvatar(avatarUrl, playerId)
-                                    .exceptionally(throwable -> {
-                                        logger.log(Level.WARNING, "Error caching avatar for player: " + userInfo.getUserNm() + " (" + playerId + ")", throwable);
-                                        return null;
-                                    });
+            QueryUserXtnInfoResponse result = new QueryUserXtnInfoResponse();
+            Map<String, UserInfo> data = new LinkedHashMap<>();
+            boolean emitted = false;
+            
+            try (InputStream decoded = decodeContent(raw, contentEncoding);
+                 JsonReader in = PlayerDataCodec.newReader(new InputStreamReader(
+                         wireCounter != null ? decodedCounter = new CountingInputStream(decoded) : decoded,
+                         StandardCharsets.UTF_8))) {
+                if (in.peek() != JsonToken.BEGIN_OBJECT) {
+                    in.skipValue();
+                    logger.log(Level.WARNING, "Parsed result is null");
+                    return errorResponse(String.valueOf(response.statusCode()), "Failed to parse response: not a JSON object");
+                }
+                
+                in.beginObject();
+                while (in.hasNext()) {
+                    switch (in.nextName()) {
+                        case "code" -> result.setCode(nextStringOrNull(in));
+                        case "message" -> result.setMessage(nextStringOrNull(in));
+                        case "data" -> {
+                            if (in.peek() != JsonToken.BEGIN_OBJECT) {
+                                in.skipValue();
+                                break;
                             }
-                            
-                            // 异步下载并缓存用户卡片
-                            String userCardUrl = userInfo.getUserCardUrl();
-                            if (userCardUrl != null && !userCardUrl.trim().isEmpty()) {
-                                ImageDownloader.downloadUserCard(userCardUrl, playerId)
-                                    .exceptionally(throwable -> {
-                                        logger.log(Level.WARNING, "Error caching user card for player: " + userInfo.getUserNm() + " (" + playerId + ")", throwable);
-                                        return null;
-                                    });
+                            // code已确认成功时边解析边交给下游
+                            emitted = result.isSuccess();
+                            in.beginObject();
+                            while (in.hasNext()) {
+                                if (isAbandoned(abandoned)) {
+                                    return errorResponse("-7", "Request abandoned");
+                                }
+                                String playerId = in.nextName();
+                                UserInfo userInfo = PlayerDataCodec.USER_INFO.read(in);
+                                data.put(playerId, userInfo);
+                                if (emitted && userInfo != null) {
+                                    XtnInfoPipeline.submit(playerId, userInfo, priority);
+                                }
                             }
-                        } else {
-                            logger.log(Level.WARNING, "Failed to save player data for playerId: " + playerId + " (Player: " + userInfo.getUserNm() + ")");
+                            in.endObject();
                         }
-                    });
+                        default -> in.skipValue();
+                    }
                 }
+                in.endObject();
+            } catch (EOFException e) {
+                logger.log(Level.WARNING, "Parsed result is null");
+                return errorResponse(String.valueOf(response.statusCode()), "Failed to parse response: unexpected end of body");
+            } catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+                logger.log(Level.SEVERE, "Failed to parse JSON response", e);
+                return errorResponse("-2", "Failed to parse JSON response: " + e.getMessage());
             }
             
-            return result;
+            result.setData(data);
             
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "IO exception during API request", e);
-            throw e;
-        } catch (InterruptedException e) {
-            logger.log(Level.SEVERE, "Request was interrupted", e);
-            Thread.currentThread().interrupt(); // 恢复中断状态
-            throw e;
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Unexpected exception during API request", e);
-            throw new RuntimeException("Unexpected error during API request", e);
+            if (isAbandoned(abandoned)) {
+                return errorResponse("-7", "Request abandoned");
+            }
+            if (result.isSuccess()) {
+                if (!emitted) {
+                    data.forEach((playerId, userInfo) -> {
+                        if (userInfo != null) {
+                            XtnInfoPipeline.submit(playerId, userInfo, priority);
+                        }
+                    });
+                }
+                
+                // 成功响应中未包含的玩家记入负缓存，返回的玩家清除其负缓存标记
+                updateNegativeCache(request.getPlayerIds(), data);
+            }
+            return result;
+        } finally {
+            if (wireCounter != null) {
+                long decodedBytes = decodedCounter != null ? decodedCounter.getCount() : 0;
+                logger.log(Level.INFO, String.format("xtnInfo response for %d players: wire=%d bytes, decoded=%d bytes, encoding=%s, version=%s",
+                        request.getPlayerIds().size(), wireCounter.getCount(), decodedBytes, contentEncoding, response.version()));
+            }
         }
     }
 
+    private static boolean isAbandoned(AtomicBoolean abandoned) {
+        return abandoned != null && abandoned.get();
+    }
+
     /**
-     * 查询用户扩展信息 - 异步方法
-     * @param request 请求参数
-     * @return CompletableFuture包装的响应结果
+     * 按Content-Encoding对响应体进行流式解压
+     * deflate按规范应为zlib格式，但部分服务器发送不带zlib头的原始deflate数据，这里根据首字节自动区分
      */
-    public static CompletableFuture<QueryUserXtnInfoResponse> queryUserXtnInfoAsync(QueryUserXtnInfoRequest request) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return queryUserXtnInfo(request);
-            } catch (IOException e) {
-                logger.log(Level.SEVERE, "IO exception in async request", e);
-                var errorResponse = new QueryUserXtnInfoResponse();
-                errorResponse.setCode("-3");
-                errorResponse.setMessage("IO exception: " + e.getMessage());
-                return errorResponse;
-            } catch (InterruptedException e) {
-                logger.log(Level.SEVERE, "Interrupted exception in async request", e);
-                Thread.currentThread().interrupt(); // 恢复中断状态
-                var errorResponse = new QueryUserXtnInfoResponse();
-                errorResponse.setCode("-4");
-                errorResponse.setMessage("Request interrupted: " + e.getMessage());
-                return errorResponse;
-            } catch (Exception e) {
-                logger.log(Level.SEVERE, "Unexpected exception in async request", e);
-                var errorResponse = new QueryUserXtnInfoResponse();
-                errorResponse.setCode("-1");
-                errorResponse.setMessage("Request failed: " + e.getMessage());
-                return errorResponse;
+    private static InputStream decodeContent(InputStream body, String contentEncoding) throws IOException {
+        String encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        switch (encoding) {
+            case "gzip", "x-gzip" -> {
+                return new GZIPInputStream(body, 8192);
             }
-        });
+            case "deflate" -> {
+                // 有的服务器按RFC发送zlib包装的数据，有的直接发送裸deflate数据，根据前两个字节判断：
+                // zlib头的压缩方法为8，且两个字节组成的16位数是31的倍数
+                PushbackInputStream in = new PushbackInputStream(body, 2);
+                int first = in.read();
+                if (first < 0) {
+                    return in;
+                }
+                int second = in.read();
+                if (second >= 0) {
+                    in.unread(second);
+                }
+                in.unread(first);
+                boolean zlibWrapped = second >= 0 && (first & 0x0F) == 8 && ((first << 8) | second) % 31 == 0;
+                return new InflaterInputStream(in, new Inflater(!zlibWrapped), 8192);
+            }
+            case "identity", "" -> {
+                return body;
+            }
+            default -> throw new IOException("Unsupported Content-Encoding: " + contentEncoding);
+        }
+    }
+
+    /**
+     * 统计读取字节数的输入流（用于测量模式）
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
+    private static String nextStringOrNull(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    /**
+     * 预热到API服务器的连接
+     * 发送一个HEAD请求完成DNS解析、TCP和TLS握手，连接留在HttpClient的连接池中供后续查询复用；
+     * 不经过限流器和熔断器，响应状态码（如405）无关紧要，熔断器打开时跳过
+     *
+     * @return 预热结束（无论成功与否）时完成的Future，结果为是否建立了连接
+     */
+    public static CompletableFuture<Boolean> prewarmConnection() {
+        if (XtnInfoCircuitBreaker.getState() == XtnInfoCircuitBreaker.State.OPEN) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        HttpRequest httpRequest = HttpRequest.newBuilder()
+                .uri(URI.create(ApiEndpoints.getXtnInfoUrl()))
+                .timeout(Duration.ofSeconds(10))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build();
+        long startNanos = System.nanoTime();
+        return httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.discarding())
+            .handle((response, throwable) -> {
+                if (throwable != null) {
+                    logger.log(Level.FINE, "xtnInfo connection pre-warm failed: " + throwable.getMessage());
+                    return false;
+                }
+                logger.log(Level.FINE, "xtnInfo connection pre-warmed in " + (System.nanoTime() - startNanos) / 1_000_000
+                        + " ms (status " + response.statusCode() + ", " + response.version() + ")");
+                return true;
+            });
+    }
+
+    /**
+     * 获取进行中的交互优先级请求数
+     */
+    public static int getInteractiveInFlightCount() {
+        return interactiveInFlight.get();
+    }
+
+    static QueryUserXtnInfoResponse errorResponse(String code, String message) {
+        var errorResponse = new QueryUserXtnInfoResponse();
+        errorResponse.setCode(code);
+        errorResponse.setMessage(message);
+        return errorResponse;
+    }
+
+    /**
+     * 根据成功响应更新未知玩家负缓存
+     * @param requestedIds 请求的玩家ID列表
+     * @param data 响应中返回的玩家数据
+     */
+    private static void updateNegativeCache(List<String> requestedIds, Map<String, UserInfo> data) {
+        List<String> missing = new ArrayList<>();
+        for (String playerId : requestedIds) {
+            if (data == null || !data.containsKey(playerId)) {
+                missing.add(playerId);
+            }
+        }
+
+        if (data != null) {
+            PlayerNegativeCache.invalidate(data.keySet());
+        }
+        if (!missing.isEmpty()) {
+            logger.log(Level.FINE, "Players unknown to xtnInfo API: " + missing);
+            PlayerNegativeCache.markUnknown(missing);
+        }
     }
 }
@@ -0,0 +1,157 @@
+package com.ninocs.mygo.client.data;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 目录存储引擎：每个玩家一个格式化的JSON文件
+ */
+class JsonFilePlayerDataStore implements PlayerDataStore {
+    private static final Logger logger = Logger.getLogger(JsonFilePlayerDataStore.class.getName());
+
+    private static final String FILE_SUFFIX = ".json";
+
+    private final Path directory;
+
+    JsonFilePlayerDataStore(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public void open() throws IOException {
+        if (!Files.exists(directory)) {
+            Files.createDirectories(directory);
+        }
+    }
+
+    /**
+     * 将玩家记录一次性流式写入临时文件，然后原子替换目标文件
+     * 每次写入使用唯一的临时文件，写入队列和同步保存同时写同一玩家时不会互相覆盖临时文件
+     */
+    @Override
+    public String write(String playerName, RecordWriter recordWriter, String fallbackData) throws IOException {
+        String fileName = sanitizeFileName(playerName) + FILE_SUFFIX;
+        Path filePath = directory.resolve(fileName);
+        Path tempFile = Files.createTempFile(directory, fileName + ".", ".tmp");
+
+        try {
+            String playerUUID = null;
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                JsonWriter out = PlayerDataCodec.newPrettyWriter(writer);
+                playerUUID = recordWriter.write(out);
+                out.flush();
+            } catch (IOException | RuntimeException e) {
+                if (fallbackData == null) {
+                    throw e;
+                }
+                logger.log(Level.WARNING, "Failed to format JSON, using original data", e);
+                Files.writeString(tempFile, fallbackData, StandardCharsets.UTF_8);
+            }
+
+            Files.move(tempFile, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return playerUUID;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public String readRaw(String playerName) throws IOException {
+        Path filePath = resolve(playerName);
+        if (!Files.exists(filePath)) {
+            return null;
+        }
+        return Files.readString(filePath);
+    }
+
+    /**
+     * 直接从文件流解码，不读入完整字符串
+     */
+    @Override
+    public PlayerExtendedInfo readInfo(String playerName) throws IOException {
+        Path filePath = resolve(playerName);
+        if (!Files.exists(filePath)) {
+            return null;
+        }
+
+        try (Reader reader = Files.newBufferedReader(filePath, StandardCharsets.UTF_8)) {
+            PlayerExtendedInfo info = PlayerDataCodec.readPlayerExtendedInfo(playerName, reader);
+
+            // 旧记录没有获取时间，使用文件修改时间代替
+            if (info != null && info.getFetchedAt() <= 0) {
+                info.setFetchedAt(Files.getLastModifiedTime(filePath).toMillis());
+            }
+            return info;
+        }
+    }
+
+    @Override
+    public boolean exists(String playerName) {
+        return Files.exists(resolve(playerName));
+    }
+
+    @Override
+    public void delete(String playerName) throws IOException {
+        Files.deleteIfExists(resolve(playerName));
+    }
+
+    /**
+     * 列出目录中的玩家，玩家名取自文件名
+     */
+    @Override
+    public List<String> listPlayers() throws IOException {
+        List<String> players = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return players;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                players.add(fileName.substring(0, fileName.length() - FILE_SUFFIX.length()));
+            }
+        }
+        return players;
+    }
+
+    @Override
+    public void flush() {
+        // 每次写入都是完整文件，无需额外刷新
+    }
+
+    /**
+     * 获取玩家记录文件路径
+     */
+    Path resolve(String playerName) {
+        return directory.resolve(sanitizeFileName(playerName) + FILE_SUFFIX);
+    }
+
+    /**
+     * 清理文件名，移除不安全的字符
+     *
+     * @param fileName 原始文件名
+     * @return 清理后的安全文件名
+     */
+    private static String sanitizeFileName(String fileName) {
+        if (fileName == null) {
+            return "unknown";
+        }
+
+        // 移除或替换不安全的字符
+        return fileName.replaceAll("[\\\\/:*?\"<>|]", "_")
+                      .replaceAll("\\s+", "_")
+                      .trim();
+    }
+}
@@ -0,0 +1,685 @@
+package com.ninocs.mygo.client.data;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * 日志存储引擎：所有玩家记录追加写入同一个日志文件，内存索引记录每个玩家最新记录的位置
+ *
+ * 日志文件格式：
+ *   文件头：magic(int) + version(int) + generation(long)
+ *   记录：  op(byte) + 玩家名长度(short) + 玩家名(UTF-8) + 数据长度(int) + 紧凑JSON(UTF-8) + CRC32(int)
+ * 索引文件保存日志的generation、已覆盖的日志长度和各玩家记录位置，启动时只需重放索引之后追加的记录。
+ * 当无效记录占比过高时重写日志（压缩），首次打开时从旧的每玩家JSON目录迁移数据。
+ *
+ * 内存映射读取模式下，日志以只读方式映射到内存，记录按索引中的偏移直接从映射缓冲区解码，
+ * 读取不产生系统调用，也不复制整条记录。压缩时先丢弃映射，替换日志后重新映射；
+ * 映射中的文件在Windows上可能无法被替换（旧映射被回收之前），此时保留原日志，压缩推迟到下次打开（建立映射之前）。
+ */
+class LogPlayerDataStore implements PlayerDataStore {
+    private static final Logger logger = Logger.getLogger(LogPlayerDataStore.class.getName());
+
+    private static final int LOG_MAGIC = 0x44465044;    // "DFPD"
+    private static final int INDEX_MAGIC = 0x44465049;  // "DFPI"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+
+    // 日志超过该大小且无效字节多于有效字节时压缩
+    private static final long COMPACT_MIN_BYTES = 256 * 1024L;
+
+    // 每追加多少条记录保存一次索引
+    private static final int INDEX_SAVE_INTERVAL = 256;
+
+    // 迁移完成后写入旧目录的标记文件
+    private static final String MIGRATED_MARKER = ".migrated";
+
+    private final Path logFile;
+    private final Path indexFile;
+    private final Path legacyDirectory;
+
+    private final boolean memoryMapped;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 以下字段由lock保护
+    private final Map<String, Entry> entries = new HashMap<>();
+    private FileChannel channel;
+    private long generation;
+    private long logLength;
+    private long liveBytes;
+    private int appendsSinceIndexSave;
+
+    // 日志的只读映射，覆盖[0, mapped.limit())，日志增长后在读取时重新映射
+    private MappedByteBuffer mapped;
+
+    // 映射期间替换日志失败，本次运行不再尝试压缩
+    private boolean compactionDeferred;
+
+    /**
+     * 玩家记录在日志中的位置
+     */
+    private static final class Entry {
+        private final long recordOffset;
+        private final int recordLength;
+        private final long payloadOffset;
+        private final int payloadLength;
+
+        private Entry(long recordOffset, int recordLength, long payloadOffset, int payloadLength) {
+            this.recordOffset = recordOffset;
+            this.recordLength = recordLength;
+            this.payloadOffset = payloadOffset;
+            this.payloadLength = payloadLength;
+        }
+    }
+
+    LogPlayerDataStore(Path logFile, Path legacyDirectory, boolean memoryMapped) {
+        this.logFile = logFile;
+        this.memoryMapped = memoryMapped;
+        this.indexFile = logFile.resolveSibling(logFile.getFileName() + ".idx");
+        this.legacyDirectory = legacyDirectory;
+    }
+
+    @Override
+    public void open() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (channel != null) {
+                return;
+            }
+
+            Files.createDirectories(logFile.getParent());
+            boolean created = !Files.exists(logFile) || Files.size(logFile) == 0;
+            channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            if (created) {
+                generation = System.nanoTime();
+                writeHeader(channel, generation);
+                logLength = HEADER_SIZE;
+                migrateLegacyDirectory();
+            } else {
+                readHeader();
+                scan(loadIndex());
+            }
+
+            if (needsCompaction()) {
+                compact();
+            }
+
+            if (memoryMapped) {
+                remap();
+            }
+        } catch (IOException e) {
+            closeChannel();
+            throw e;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String write(String playerName, RecordWriter recordWriter, String fallbackData) throws IOException {
+        // 记录在锁外编码，持锁期间只做追加
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(512);
+        String playerUUID = null;
+        try {
+            JsonWriter out = PlayerDataCodec.newCompactWriter(new OutputStreamWriter(buffer, StandardCharsets.UTF_8));
+            playerUUID = recordWriter.write(out);
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            if (fallbackData == null) {
+                throw e;
+            }
+            logger.log(Level.WARNING, "Failed to encode player record, storing original data", e);
+            buffer.reset();
+            buffer.write(fallbackData.getBytes(StandardCharsets.UTF_8));
+        }
+
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            append(OP_PUT, playerName, buffer.toByteArray());
+            afterAppend();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return playerUUID;
+    }
+
+    @Override
+    public String readRaw(String playerName) throws IOException {
+        if (memoryMapped) {
+            ByteBuffer payload = mappedPayload(playerName);
+            return payload != null ? StandardCharsets.UTF_8.decode(payload).toString() : null;
+        }
+
+        byte[] payload = readPayload(playerName);
+        return payload != null ? new String(payload, StandardCharsets.UTF_8) : null;
+    }
+
+    @Override
+    public PlayerExtendedInfo readInfo(String playerName) throws IOException {
+        InputStream payload;
+        if (memoryMapped) {
+            ByteBuffer buffer = mappedPayload(playerName);
+            payload = buffer != null ? new ByteBufferInputStream(buffer) : null;
+        } else {
+            byte[] bytes = readPayload(playerName);
+            payload = bytes != null ? new ByteArrayInputStream(bytes) : null;
+        }
+
+        if (payload == null) {
+            return null;
+        }
+
+        try (Reader reader = new InputStreamReader(payload, StandardCharsets.UTF_8)) {
+            return PlayerDataCodec.readPlayerExtendedInfo(playerName, reader);
+        }
+    }
+
+    @Override
+    public boolean exists(String playerName) {
+        lock.readLock().lock();
+        try {
+            return entries.containsKey(playerName);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(String playerName) throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            if (entries.containsKey(playerName)) {
+                append(OP_DELETE, playerName, new byte[0]);
+                afterAppend();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> listPlayers() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(entries.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            if (channel == null) {
+                return;
+            }
+            channel.force(false);
+            saveIndex();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to flush player data log: " + logFile, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (channel == null) {
+            throw new IOException("Player data log is not open: " + logFile);
+        }
+    }
+
+    private byte[] readPayload(String playerName) throws IOException {
+        lock.readLock().lock();
+        try {
+            Entry entry = entries.get(playerName);
+            if (entry == null || channel == null) {
+                return null;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(entry.payloadLength);
+            readFully(channel, buffer, entry.payloadOffset);
+            return buffer.array();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 从内存映射中取出玩家记录的数据部分，不复制数据
+     * 记录位于当前映射范围之外（映射之后追加的记录）时先重新映射
+     *
+     * @return 仅覆盖该记录数据的缓冲区视图，不存在则返回null
+     */
+    private ByteBuffer mappedPayload(String playerName) throws IOException {
+        while (true) {
+            lock.readLock().lock();
+            try {
+                Entry entry = entries.get(playerName);
+                if (entry == null || channel == null) {
+                    return null;
+                }
+
+                MappedByteBuffer current = mapped;
+                long end = entry.payloadOffset + entry.payloadLength;
+                if (current != null && end <= current.limit()) {
+                    ByteBuffer view = current.duplicate();
+                    view.limit((int) end).position((int) entry.payloadOffset);
+                    return view.slice();
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            lock.writeLock().lock();
+            try {
+                remap();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * 按当前日志长度重新建立只读映射（调用方持有写锁）
+     */
+    private void remap() throws IOException {
+        ensureOpen();
+        if (mapped != null && mapped.limit() >= logLength) {
+            return;
+        }
+        if (logLength > Integer.MAX_VALUE) {
+            throw new IOException("Player data log too large to map: " + logLength + " bytes");
+        }
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, logLength);
+    }
+
+    /**
+     * 追加一条记录并更新内存索引（调用方持有写锁）
+     */
+    private void append(byte op, String playerName, byte[] payload) throws IOException {
+        byte[] name = playerName.getBytes(StandardCharsets.UTF_8);
+        int recordLength = 1 + 2 + name.length + 4 + payload.length + 4;
+
+        ByteBuffer record = ByteBuffer.allocate(recordLength);
+        record.put(op);
+        record.putShort((short) name.length);
+        record.put(name);
+        record.putInt(payload.length);
+        record.put(payload);
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, recordLength - 4);
+        record.putInt((int) crc.getValue());
+        record.flip();
+
+        long offset = logLength;
+        while (record.hasRemaining()) {
+            channel.write(record, offset + record.position());
+        }
+        logLength += recordLength;
+
+        apply(op, playerName, new Entry(offset, recordLength, offset + 1 + 2 + name.length + 4, payload.length));
+    }
+
+    private void apply(byte op, String playerName, Entry entry) {
+        Entry previous = op == OP_PUT ? entries.put(playerName, entry) : entries.remove(playerName);
+        if (previous != null) {
+            liveBytes -= previous.recordLength;
+        }
+        if (op == OP_PUT) {
+            liveBytes += entry.recordLength;
+        }
+    }
+
+    private void afterAppend() throws IOException {
+        if (needsCompaction()) {
+            compact();
+        } else if (++appendsSinceIndexSave >= INDEX_SAVE_INTERVAL) {
+            // 索引引用的记录必须先落盘，否则崩溃后索引可能指向未写入的数据
+            channel.force(false);
+            saveIndex();
+        }
+    }
+
+    private boolean needsCompaction() {
+        if (compactionDeferred) {
+            return false;
+        }
+        return logLength > COMPACT_MIN_BYTES && logLength - HEADER_SIZE - liveBytes > liveBytes;
+    }
+
+    /**
+     * 重写日志，只保留每个玩家的最新记录（调用方持有写锁）
+     */
+    private void compact() throws IOException {
+        long before = logLength;
+        Path tempFile = logFile.resolveSibling(logFile.getFileName() + ".compact");
+        long newGeneration = System.nanoTime();
+        Map<String, Entry> compacted = new HashMap<>();
+        long position = HEADER_SIZE;
+
+        try (FileChannel out = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeHeader(out, newGeneration);
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                ByteBuffer record = ByteBuffer.allocate(entry.recordLength);
+                readFully(channel, record, entry.recordOffset);
+                record.flip();
+                while (record.hasRemaining()) {
+                    out.write(record, position + record.position());
+                }
+
+                compacted.put(e.getKey(), new Entry(position, entry.recordLength,
+                        position + (entry.payloadOffset - entry.recordOffset), entry.payloadLength));
+                position += entry.recordLength;
+            }
+            out.force(true);
+        }
+
+        // Windows上不能替换仍处于打开状态的文件，先关闭通道并丢弃映射再替换；
+        // 读取方手里的旧映射视图仍指向原文件的数据，不受替换影响
+        closeChannel();
+        try {
+            Files.move(tempFile, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // 旧映射尚未被回收时替换会失败：继续使用原日志，下次打开时在建立映射之前压缩
+            channel = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Files.deleteIfExists(tempFile);
+            compactionDeferred = true;
+            if (memoryMapped) {
+                remap();
+            }
+            logger.log(Level.INFO, "Deferring player data log compaction to next open: " + e.getMessage());
+            return;
+        }
+        channel = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        entries.clear();
+        entries.putAll(compacted);
+        generation = newGeneration;
+        logLength = position;
+        saveIndex();
+        if (memoryMapped) {
+            remap();
+        }
+
+        logger.log(Level.INFO, "Compacted player data log: " + before + " -> " + logLength + " bytes, " + entries.size() + " players");
+    }
+
+    private static void writeHeader(FileChannel out, long generation) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(LOG_MAGIC).putInt(FORMAT_VERSION).putLong(generation).flip();
+        while (header.hasRemaining()) {
+            out.write(header, header.position());
+        }
+    }
+
+    private void readHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != LOG_MAGIC || header.getInt() != FORMAT_VERSION) {
+            throw new IOException("Unrecognized player data log format: " + logFile);
+        }
+        generation = header.getLong();
+    }
+
+    /**
+     * 从指定位置顺序重放日志记录，遇到不完整或损坏的尾部记录时截断
+     */
+    private void scan(long from) throws IOException {
+        long position = from;
+        channel.position(from);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+        CRC32 crc = new CRC32();
+
+        while (true) {
+            try {
+                byte op = in.readByte();
+                byte[] name = new byte[in.readUnsignedShort()];
+                in.readFully(name);
+                int payloadLength = in.readInt();
+                if ((op != OP_PUT && op != OP_DELETE) || payloadLength < 0) {
+                    throw new IOException("Corrupt record header");
+                }
+                byte[] payload = new byte[payloadLength];
+                in.readFully(payload);
+                int storedCrc = in.readInt();
+
+                int recordLength = 1 + 2 + name.length + 4 + payloadLength + 4;
+                ByteBuffer check = ByteBuffer.allocate(recordLength - 4);
+                check.put(op).putShort((short) name.length).put(name).putInt(payloadLength).put(payload);
+                crc.reset();
+                crc.update(check.array());
+                if ((int) crc.getValue() != storedCrc) {
+                    throw new IOException("Record checksum mismatch");
+                }
+
+                apply(op, new String(name, StandardCharsets.UTF_8),
+                        new Entry(position, recordLength, position + 1 + 2 + name.length + 4, payloadLength));
+                position += recordLength;
+            } catch (EOFException e) {
+                break;
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Truncating damaged player data log at offset " + position + ": " + e.getMessage());
+                break;
+            }
+        }
+
+        if (position < channel.size()) {
+            channel.truncate(position);
+        }
+        logLength = position;
+    }
+
+    /**
+     * 加载索引文件
+     *
+     * @return 索引已覆盖的日志长度，索引不可用时返回文件头之后的位置（完整重放）
+     */
+    private long loadIndex() {
+        if (!Files.exists(indexFile)) {
+            return HEADER_SIZE;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != FORMAT_VERSION || in.readLong() != generation) {
+                return HEADER_SIZE;
+            }
+
+            long coveredLength = in.readLong();
+            if (coveredLength < HEADER_SIZE || coveredLength > channel.size()) {
+                return HEADER_SIZE;
+            }
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String playerName = in.readUTF();
+                Entry entry = new Entry(in.readLong(), in.readInt(), in.readLong(), in.readInt());
+                apply(OP_PUT, playerName, entry);
+            }
+            return coveredLength;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Player data log index unusable, replaying full log", e);
+            entries.clear();
+            liveBytes = 0;
+            return HEADER_SIZE;
+        }
+    }
+
+    /**
+     * 保存索引文件（调用方持有写锁）
+     */
+    private void saveIndex() throws IOException {
+        Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(generation);
+            out.writeLong(logLength);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeLong(entry.recordOffset);
+                out.writeInt(entry.recordLength);
+                out.writeLong(entry.payloadOffset);
+                out.writeInt(entry.payloadLength);
+            }
+        }
+        Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        appendsSinceIndexSave = 0;
+    }
+
+    /**
+     * 一次性把旧的每玩家JSON目录导入日志（调用方持有写锁）
+     * 旧记录没有获取时间时使用文件修改时间，迁移完成后在旧目录写入标记文件
+     */
+    private void migrateLegacyDirectory() throws IOException {
+        if (legacyDirectory == null || !Files.isDirectory(legacyDirectory)
+                || Files.exists(legacyDirectory.resolve(MIGRATED_MARKER))) {
+            return;
+        }
+
+        int migrated = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(legacyDirectory, "*.json")) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                try {
+                    String json = Files.readString(file, StandardCharsets.UTF_8);
+                    long modifiedAt = Files.getLastModifiedTime(file).toMillis();
+                    String playerName = storedPlayerName(json, fileName.substring(0, fileName.length() - ".json".length()));
+
+                    ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length());
+                    try (JsonReader in = PlayerDataCodec.newReader(new StringReader(json))) {
+                        JsonWriter out = PlayerDataCodec.newCompactWriter(new OutputStreamWriter(buffer, StandardCharsets.UTF_8));
+                        PlayerDataCodec.copyPlayerRecord(in, out, modifiedAt);
+                        out.flush();
+                    } catch (IOException | RuntimeException e) {
+                        buffer.reset();
+                        buffer.write(json.getBytes(StandardCharsets.UTF_8));
+                    }
+
+                    append(OP_PUT, playerName, buffer.toByteArray());
+                    migrated++;
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Skipping unreadable player data file during migration: " + file, e);
+                }
+            }
+        }
+
+        channel.force(false);
+        saveIndex();
+        Files.writeString(legacyDirectory.resolve(MIGRATED_MARKER), logFile.getFileName().toString(), StandardCharsets.UTF_8);
+        logger.log(Level.INFO, "Migrated " + migrated + " player records from " + legacyDirectory + " to " + logFile);
+    }
+
+    /**
+     * 取记录中保存的原始玩家名；文件名替换过特殊字符，只在记录中没有玩家名时使用
+     */
+    private static String storedPlayerName(String json, String fileStem) {
+        try {
+            PlayerExtendedInfo info = PlayerDataCodec.readStoredRecord(new StringReader(json));
+            if (info != null && info.getPlayerName() != null && !info.getPlayerName().isEmpty()) {
+                return info.getPlayerName();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.FINE, "Failed to read player name from legacy record, using file name: " + fileStem, e);
+        }
+        return fileStem;
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Failed to close player data log", e);
+        }
+        channel = null;
+        mapped = null;
+    }
+
+    /**
+     * 基于ByteBuffer的输入流，直接读取映射内存
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    private static void readFully(FileChannel source, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = source.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of player data log at offset " + (position + buffer.position()));
+            }
+        }
+    }
+}
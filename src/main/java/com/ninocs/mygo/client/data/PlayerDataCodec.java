@@ -0,0 +1,398 @@
+package com.ninocs.mygo.client.data;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.ninocs.mygo.api.playerXtnInfoApi;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * 玩家数据流式编解码器
+ * 基于JsonReader/JsonWriter直接在对象与字符流之间转换，不构建JsonObject树，也不经过中间字符串
+ * 存储格式与API返回的UserInfo结构一致：基本信息位于根级别，扩展信息位于xtnInfo对象中
+ */
+public class PlayerDataCodec {
+
+    // 记录中保存获取时间的字段名
+    private static final String FETCHED_AT_FIELD = "fetchedAt";
+
+    /**
+     * XtnInfo编解码器
+     */
+    public static final TypeAdapter<playerXtnInfoApi.XtnInfo> XTN_INFO = new TypeAdapter<>() {
+        @Override
+        public void write(JsonWriter out, playerXtnInfoApi.XtnInfo xtnInfo) throws IOException {
+            if (xtnInfo == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeField(out, "userCard", xtnInfo.getUserCard());
+            writeField(out, "userBanner", xtnInfo.getUserBanner());
+            writeField(out, "mvpMusicUrl", xtnInfo.getMvpMusicUrl());
+            writeField(out, "mvpVideosUrl", xtnInfo.getMvpVideosUrl());
+            writeField(out, "userSpaceContexts", xtnInfo.getUserSpaceContexts());
+            writeField(out, "mvpMusicNm", xtnInfo.getMvpMusicNm());
+            out.endObject();
+        }
+
+        @Override
+        public playerXtnInfoApi.XtnInfo read(JsonReader in) throws IOException {
+            if (in.peek() != JsonToken.BEGIN_OBJECT) {
+                in.skipValue();
+                return null;
+            }
+
+            var xtnInfo = new playerXtnInfoApi.XtnInfo();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "userCard" -> xtnInfo.setUserCard(nextStringOrNull(in));
+                    case "userBanner" -> xtnInfo.setUserBanner(nextStringOrNull(in));
+                    case "mvpMusicUrl" -> xtnInfo.setMvpMusicUrl(nextStringOrNull(in));
+                    case "mvpVideosUrl" -> xtnInfo.setMvpVideosUrl(nextStringOrNull(in));
+                    case "userSpaceContexts" -> xtnInfo.setUserSpaceContexts(nextStringOrNull(in));
+                    case "mvpMusicNm" -> xtnInfo.setMvpMusicNm(nextStringOrNull(in));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return xtnInfo;
+        }
+    };
+
+    /**
+     * UserInfo编解码器
+     */
+    public static final TypeAdapter<playerXtnInfoApi.UserInfo> USER_INFO = new TypeAdapter<>() {
+        @Override
+        public void write(JsonWriter out, playerXtnInfoApi.UserInfo userInfo) throws IOException {
+            if (userInfo == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeUserInfoFields(out, userInfo);
+            out.endObject();
+        }
+
+        @Override
+        public playerXtnInfoApi.UserInfo read(JsonReader in) throws IOException {
+            if (in.peek() != JsonToken.BEGIN_OBJECT) {
+                in.skipValue();
+                return null;
+            }
+
+            var userInfo = new playerXtnInfoApi.UserInfo();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "playerUUID" -> userInfo.setPlayerUUID(nextStringOrNull(in));
+                    case "userNm" -> userInfo.setUserNm(nextStringOrNull(in));
+                    case "avatar" -> userInfo.setAvatar(nextStringOrNull(in));
+                    case "loginIdNbr" -> userInfo.setLoginIdNbr(nextStringOrNull(in));
+                    case "xtnInfo" -> userInfo.setXtnInfo(XTN_INFO.read(in));
+                    case "playerId" -> userInfo.setPlayerId(nextStringOrNull(in));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return userInfo;
+        }
+    };
+
+    /**
+     * PlayerExtendedInfo编解码器
+     * 读写与UserInfo相同的结构；读取时记录中的playerId作为playerName，按玩家名读取时由调用方覆盖
+     */
+    public static final TypeAdapter<PlayerExtendedInfo> PLAYER_EXTENDED_INFO = new TypeAdapter<>() {
+        @Override
+        public void write(JsonWriter out, PlayerExtendedInfo info) throws IOException {
+            if (info == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeField(out, "playerUUID", info.getPlayerUUID());
+            writeField(out, "userNm", info.getUserNm());
+            writeField(out, "avatar", info.getAvatar());
+            writeField(out, "loginIdNbr", info.getLoginIdNbr());
+            out.name("xtnInfo");
+            out.beginObject();
+            writeField(out, "userCard", info.getUserCard());
+            writeField(out, "userBanner", info.getUserBanner());
+            writeField(out, "mvpMusicUrl", info.getMvpMusicUrl());
+            writeField(out, "mvpVideosUrl", info.getMvpVideosUrl());
+            writeField(out, "userSpaceContexts", info.getUserSpaceContexts());
+            writeField(out, "mvpMusicNm", info.getMvpMusicNm());
+            out.endObject();
+            if (info.getFetchedAt() > 0) {
+                out.name(FETCHED_AT_FIELD).value(info.getFetchedAt());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public PlayerExtendedInfo read(JsonReader in) throws IOException {
+            if (in.peek() != JsonToken.BEGIN_OBJECT) {
+                in.skipValue();
+                return null;
+            }
+
+            PlayerExtendedInfo info = new PlayerExtendedInfo();
+            String legacyUuid = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "playerUUID" -> info.setPlayerUUID(nextStringOrNull(in));
+                    case "uuid" -> legacyUuid = nextStringOrNull(in);
+                    case "userNm" -> info.setUserNm(nextStringOrNull(in));
+                    case "avatar" -> info.setAvatar(nextStringOrNull(in));
+                    case "loginIdNbr" -> info.setLoginIdNbr(nextStringOrNull(in));
+                    case "xtnInfo" -> readXtnInfoInto(in, info);
+                    case "playerId" -> info.setPlayerName(nextStringOrNull(in));
+                    case FETCHED_AT_FIELD -> info.setFetchedAt(nextLongOrZero(in));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+
+            // 兼容旧格式中的uuid字段
+            if (info.getPlayerUUID() == null) {
+                info.setPlayerUUID(legacyUuid);
+            }
+            return info;
+        }
+    };
+
+    private PlayerDataCodec() {}
+
+    /**
+     * 从字符流读取玩家扩展信息
+     *
+     * @param playerName 玩家名
+     * @param reader 字符流
+     * @return 玩家扩展信息，数据不是JSON对象时返回null
+     * @throws IOException 读取或解析失败
+     */
+    public static PlayerExtendedInfo readPlayerExtendedInfo(String playerName, Reader reader) throws IOException {
+        JsonReader in = newReader(reader);
+        PlayerExtendedInfo info = PLAYER_EXTENDED_INFO.read(in);
+        if (info != null) {
+            info.setPlayerName(playerName);
+        }
+        return info;
+    }
+
+    /**
+     * 从字符流读取存储记录，playerName取记录中保存的playerId
+     * 用于只知道存储键（如经过替换的文件名）而不知道原始玩家名的场景
+     *
+     * @param reader 字符流
+     * @return 玩家扩展信息，记录中没有playerId时playerName为null；数据不是JSON对象时返回null
+     * @throws IOException 读取或解析失败
+     */
+    public static PlayerExtendedInfo readStoredRecord(Reader reader) throws IOException {
+        return PLAYER_EXTENDED_INFO.read(newReader(reader));
+    }
+
+    /**
+     * 写入一条带获取时间的UserInfo存储记录
+     * API返回的数据没有playerId时写入玩家名，保证记录中总能取回原始玩家名
+     *
+     * @param out 输出
+     * @param playerName 玩家名
+     * @param userInfo 用户信息
+     * @param fetchedAt 从API获取数据的时间（毫秒时间戳）
+     * @throws IOException 写入失败
+     */
+    public static void writeUserInfoRecord(JsonWriter out, String playerName, playerXtnInfoApi.UserInfo userInfo,
+                                           long fetchedAt) throws IOException {
+        out.beginObject();
+        writeUserInfoFields(out, userInfo);
+        if (userInfo.getPlayerId() == null) {
+            writeField(out, "playerId", playerName);
+        }
+        out.name(FETCHED_AT_FIELD).value(fetchedAt);
+        out.endObject();
+    }
+
+    /**
+     * 将一条玩家记录从JsonReader逐个token复制到JsonWriter
+     * 用于对外部传入的原始JSON进行格式化输出，同时提取根级别的UUID
+     * 如果记录中没有获取时间，则在根对象末尾补充
+     *
+     * @param in 输入
+     * @param out 输出
+     * @param fetchedAt 记录缺少获取时间时写入的值（毫秒时间戳）
+     * @return 根级别的playerUUID（或旧格式的uuid），不存在返回null
+     * @throws IOException 输入不是JSON对象或读写失败
+     */
+    public static String copyPlayerRecord(JsonReader in, JsonWriter out, long fetchedAt) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+            throw new IOException("Player record is not a JSON object");
+        }
+
+        String playerUUID = null;
+        String legacyUuid = null;
+        String rootFieldName = null;
+        boolean hasFetchedAt = false;
+        int depth = 0;
+
+        do {
+            JsonToken token = in.peek();
+            switch (token) {
+                case BEGIN_OBJECT -> {
+                    in.beginObject();
+                    out.beginObject();
+                    depth++;
+                }
+                case END_OBJECT -> {
+                    in.endObject();
+                    if (depth == 1 && !hasFetchedAt) {
+                        out.name(FETCHED_AT_FIELD).value(fetchedAt);
+                    }
+                    out.endObject();
+                    depth--;
+                }
+                case BEGIN_ARRAY -> {
+                    in.beginArray();
+                    out.beginArray();
+                    depth++;
+                }
+                case END_ARRAY -> {
+                    in.endArray();
+                    out.endArray();
+                    depth--;
+                }
+                case NAME -> {
+                    String name = in.nextName();
+                    out.name(name);
+                    rootFieldName = depth == 1 ? name : null;
+                    if (FETCHED_AT_FIELD.equals(rootFieldName)) {
+                        hasFetchedAt = true;
+                    }
+                    continue;
+                }
+                case STRING -> {
+                    String value = in.nextString();
+                    out.value(value);
+                    if ("playerUUID".equals(rootFieldName)) {
+                        playerUUID = value;
+                    } else if ("uuid".equals(rootFieldName)) {
+                        legacyUuid = value;
+                    }
+                }
+                case NUMBER -> out.jsonValue(in.nextString());
+                case BOOLEAN -> out.value(in.nextBoolean());
+                case NULL -> {
+                    in.nextNull();
+                    out.nullValue();
+                }
+                default -> throw new IOException("Unexpected token in player record: " + token);
+            }
+            rootFieldName = null;
+        } while (depth > 0);
+
+        return playerUUID != null ? playerUUID : legacyUuid;
+    }
+
+    /**
+     * 创建宽松模式的JsonReader（与JsonParser的解析行为保持一致）
+     */
+    public static JsonReader newReader(Reader reader) {
+        JsonReader in = new JsonReader(reader);
+        in.setLenient(true);
+        return in;
+    }
+
+    /**
+     * 创建带缩进的JsonWriter，输出格式与Gson的pretty printing一致
+     */
+    public static JsonWriter newPrettyWriter(Writer writer) {
+        JsonWriter out = new JsonWriter(writer);
+        out.setIndent("  ");
+        return out;
+    }
+
+    /**
+     * 创建不带缩进的JsonWriter，用于紧凑存储格式
+     */
+    public static JsonWriter newCompactWriter(Writer writer) {
+        return new JsonWriter(writer);
+    }
+
+    private static void writeUserInfoFields(JsonWriter out, playerXtnInfoApi.UserInfo userInfo) throws IOException {
+        writeField(out, "playerUUID", userInfo.getPlayerUUID());
+        writeField(out, "userNm", userInfo.getUserNm());
+        writeField(out, "avatar", userInfo.getAvatar());
+        writeField(out, "loginIdNbr", userInfo.getLoginIdNbr());
+        if (userInfo.getXtnInfo() != null) {
+            out.name("xtnInfo");
+            XTN_INFO.write(out, userInfo.getXtnInfo());
+        }
+        writeField(out, "playerId", userInfo.getPlayerId());
+    }
+
+    private static void readXtnInfoInto(JsonReader in, PlayerExtendedInfo info) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+            in.skipValue();
+            return;
+        }
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "userCard" -> info.setUserCard(nextStringOrNull(in));
+                case "userBanner" -> info.setUserBanner(nextStringOrNull(in));
+                case "mvpMusicUrl" -> info.setMvpMusicUrl(nextStringOrNull(in));
+                case "mvpVideosUrl" -> info.setMvpVideosUrl(nextStringOrNull(in));
+                case "userSpaceContexts" -> info.setUserSpaceContexts(nextStringOrNull(in));
+                case "mvpMusicNm" -> info.setMvpMusicNm(nextStringOrNull(in));
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+
+    private static String nextStringOrNull(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case NULL -> {
+                in.nextNull();
+                return null;
+            }
+            case STRING, NUMBER -> {
+                return in.nextString();
+            }
+            case BOOLEAN -> {
+                return Boolean.toString(in.nextBoolean());
+            }
+            default -> {
+                in.skipValue();
+                return null;
+            }
+        }
+    }
+
+    private static long nextLongOrZero(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NUMBER || in.peek() == JsonToken.STRING) {
+            try {
+                return in.nextLong();
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        in.skipValue();
+        return 0;
+    }
+
+    private static void writeField(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+}
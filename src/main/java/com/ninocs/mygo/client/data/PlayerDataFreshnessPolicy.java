@@ -0,0 +1,59 @@
+package com.ninocs.mygo.client.data;
+
+/**
+ * 玩家数据新鲜度策略
+ * 根据记录的获取时间将缓存数据分为三类：
+ *   FRESH   - 新鲜，直接使用
+ *   STALE   - 已过时，立即使用并在后台刷新一次
+ *   EXPIRED - 已过期，需要等待网络请求获取新数据
+ */
+public class PlayerDataFreshnessPolicy {
+    // 新鲜窗口（毫秒）：获取后30分钟内视为新鲜
+    private static final long FRESH_WINDOW_MS = 30 * 60 * 1000L;
+
+    // 过时窗口（毫秒）：新鲜窗口之后7天内仍可先使用旧数据
+    private static final long STALE_WINDOW_MS = 7 * 24 * 60 * 60 * 1000L;
+
+    /**
+     * 数据新鲜度
+     */
+    public enum Freshness {
+        FRESH,
+        STALE,
+        EXPIRED
+    }
+
+    private PlayerDataFreshnessPolicy() {}
+
+    /**
+     * 评估玩家数据的新鲜度
+     *
+     * @param fetchedAt 获取时间（毫秒时间戳），0表示未知
+     * @return 新鲜度
+     */
+    public static Freshness evaluate(long fetchedAt) {
+        // 获取时间未知的旧数据先使用，同时在后台刷新
+        if (fetchedAt <= 0) {
+            return Freshness.STALE;
+        }
+
+        long age = System.currentTimeMillis() - fetchedAt;
+        if (age < FRESH_WINDOW_MS) {
+            return Freshness.FRESH;
+        }
+        if (age < FRESH_WINDOW_MS + STALE_WINDOW_MS) {
+            return Freshness.STALE;
+        }
+        return Freshness.EXPIRED;
+    }
+
+    /**
+     * 评估玩家扩展信息的新鲜度
+     *
+     * @param info 玩家扩展信息
+     * @return 新鲜度，info为null时返回EXPIRED
+     */
+    public static Freshness evaluate(PlayerExtendedInfo info) {
+        return info != null ? evaluate(info.getFetchedAt()) : Freshness.EXPIRED;
+    }
+}
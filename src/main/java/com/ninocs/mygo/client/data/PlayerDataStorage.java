@@ -2,34 +2,58 @@ package com.ninocs.mygo.client.data;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.ninocs.mygo.Config;
+import com.ninocs.mygo.api.XtnInfoSingleFlight;
 import com.ninocs.mygo.api.playerXtnInfoApi;
+import com.ninocs.mygo.util.PriorityExecutor;
+import com.ninocs.mygo.util.RequestPriority;
 
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.StringReader;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * 玩家数据存储工具类
- * 负责将玩家扩展信息保存为JSON文件到游戏缓存目录
+ * 负责将玩家扩展信息保存到游戏缓存目录，磁盘布局由配置的存储引擎决定（见PlayerDataStore）
  */
 public class PlayerDataStorage {
     private static final Logger logger = Logger.getLogger(PlayerDataStorage.class.getName());
     
-    // 缓存目录路径
+    // 缓存目录路径（JSON_FILES引擎的数据目录，也是LOG引擎的迁移来源）
     private static final String CACHE_DIR = "MCGO/cache/player_data";
     
+    // LOG引擎的日志文件路径
+    private static final String LOG_FILE = "MCGO/cache/player_data.log";
+    
+    // 等待API查询结果的最长时间（秒）
+    private static final long API_TIMEOUT_SECONDS = 35;
+    
+    // 当前使用的存储引擎，首次使用时按配置创建
+    private static volatile PlayerDataStore store;
+    
     // Gson实例，用于JSON序列化
     private static final Gson gson = new GsonBuilder()
-            .setPrettyPrinting()
+            .registerTypeAdapter(playerXtnInfoApi.UserInfo.class, PlayerDataCodec.USER_INFO)
+            .registerTypeAdapter(playerXtnInfoApi.XtnInfo.class, PlayerDataCodec.XTN_INFO)
             .create();
     
+    // 后台线程池，用于异步读取玩家数据和请求API，避免阻塞客户端/渲染线程
+    // 排队的任务按优先级执行，当前观察目标的读取排在后台刷新之前
+    private static final PriorityExecutor ioExecutor = new PriorityExecutor("DFSpectatorUi-PlayerData-IO", 2);
+    
+    // 正在后台刷新的玩家
+    private static final Set<String> refreshingPlayers = ConcurrentHashMap.newKeySet();
+    
     /**
      * 保存玩家数据到JSON文件
      * 
@@ -48,34 +72,14 @@ public class PlayerDataStorage {
             return false;
         }
         
-        try {
-            // 创建缓存目录
-            Path cacheDir = Paths.get(CACHE_DIR);
-            if (!Files.exists(cacheDir)) {
-                Files.createDirectories(cacheDir);
-
-            }
-            
-            // 构建文件路径
-            String fileName = sanitizeFileName(playerName) + ".json";
-            Path filePath = cacheDir.resolve(fileName);
-            
-            // 格式化JSON数据
-            String formattedJson = formatJson(jsonData);
-            
-            // 写入文件
-            try (FileWriter writer = new FileWriter(filePath.toFile(), false)) {
-                writer.write(formattedJson);
-                writer.flush();
-            }
-            
-
-            return true;
-            
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "Failed to save player data for: " + playerName, e);
-            return false;
+        // 交给写入队列按顺序写入，避免与队列中该玩家更早的数据互相覆盖；等待写入完成以保持同步语义
+        boolean saved = PlayerDataWriteQueue.enqueueRaw(playerName, jsonData, System.currentTimeMillis()).join();
+        
+        // 原始JSON无法直接得到解析结果，使内存缓存失效，下次读取时重新解析
+        if (saved) {
+            PlayerExtendedInfoCache.invalidate(playerName);
         }
+        return saved;
     }
     
     /**
@@ -92,6 +96,16 @@ public class PlayerDataStorage {
         }
         
         try {
+            // API返回的用户信息与异步保存走同一写入队列，并填充内存缓存；等待写入完成以保持同步语义
+            if (dataObject instanceof playerXtnInfoApi.UserInfo userInfo) {
+                if (playerName == null || playerName.trim().isEmpty()) {
+                    logger.log(Level.WARNING, "Player name is null or empty, cannot save data");
+                    return false;
+                }
+                
+                return savePlayerDataAsync(playerName, userInfo).join();
+            }
+            
             String jsonData = gson.toJson(dataObject);
             return savePlayerData(playerName, jsonData);
         } catch (Exception e) {
@@ -100,112 +114,345 @@ public class PlayerDataStorage {
         }
     }
     
+    /**
+     * 获取已打开的存储引擎，首次调用时按配置创建
+     * LOG引擎打开失败时退回到JSON目录存储
+     * 
+     * @return 存储引擎
+     */
+    private static PlayerDataStore getStore() {
+        PlayerDataStore current = store;
+        if (current != null) {
+            return current;
+        }
+        
+        synchronized (PlayerDataStorage.class) {
+            if (store == null) {
+                store = openStore(Config.playerDataStore);
+            }
+            return store;
+        }
+    }
+    
+    private static PlayerDataStore openStore(PlayerDataStore.Engine engine) {
+        if (engine == PlayerDataStore.Engine.LOG) {
+            PlayerDataStore logStore = new LogPlayerDataStore(Paths.get(LOG_FILE), Paths.get(CACHE_DIR), Config.playerDataMmapReads);
+            try {
+                logStore.open();
+                return logStore;
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Failed to open player data log, falling back to JSON files", e);
+            }
+        }
+        
+        PlayerDataStore fileStore = new JsonFilePlayerDataStore(Paths.get(CACHE_DIR));
+        try {
+            fileStore.open();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to create player data directory", e);
+        }
+        return fileStore;
+    }
+    
+    /**
+     * 确保存储已打开（供写入队列每批调用一次）
+     * 
+     * @throws IOException 打开失败
+     */
+    static void ensureStoreOpen() throws IOException {
+        getStore().open();
+    }
+    
+    /**
+     * 将内存中的存储状态写入磁盘（如日志索引）
+     */
+    static void flushStore() {
+        PlayerDataStore current = store;
+        if (current != null) {
+            current.flush();
+        }
+    }
+    
+    /**
+     * 将API返回的用户信息写入存储（供写入队列使用）
+     * 
+     * @param playerName 玩家名称
+     * @param userInfo 用户信息
+     * @param fetchedAt 获取时间
+     * @return 是否保存成功
+     */
+    static boolean writeUserInfoRecord(String playerName, playerXtnInfoApi.UserInfo userInfo, long fetchedAt) {
+        return writePlayerRecord(playerName, out -> {
+            PlayerDataCodec.writeUserInfoRecord(out, playerName, userInfo, fetchedAt);
+            return userInfo.getPlayerUUID();
+        }, null);
+    }
+    
+    /**
+     * 将外部传入的原始JSON写入存储（供写入队列使用）
+     * 逐个token复制为格式化输出，同时提取UUID，不构建中间JSON树
+     * 
+     * @param playerName 玩家名称
+     * @param jsonData JSON数据字符串
+     * @param fetchedAt 记录缺少获取时间时写入的值
+     * @return 是否保存成功
+     */
+    static boolean writeRawRecord(String playerName, String jsonData, long fetchedAt) {
+        return writePlayerRecord(playerName, out -> {
+            try (JsonReader in = PlayerDataCodec.newReader(new StringReader(jsonData))) {
+                return PlayerDataCodec.copyPlayerRecord(in, out, fetchedAt);
+            }
+        }, jsonData);
+    }
+    
+    /**
+     * 将玩家记录写入存储，并更新UUID索引
+     * 
+     * @param playerName 玩家名称
+     * @param recordWriter 记录写入器
+     * @param fallbackData 格式化失败时原样写入的数据，为null时格式化失败即保存失败
+     * @return 是否保存成功
+     */
+    private static boolean writePlayerRecord(String playerName, PlayerDataStore.RecordWriter recordWriter, String fallbackData) {
+        try {
+            String playerUUID = getStore().write(playerName, recordWriter, fallbackData);
+            
+            // 更新UUID索引
+            PlayerUuidIndex.put(playerUUID, playerName);
+            return true;
+            
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.SEVERE, "Failed to save player data for: " + playerName, e);
+            return false;
+        }
+    }
+    
+    /**
+     * 异步保存API返回的玩家数据
+     * 内存缓存立即更新，文件写入交给写入队列的单一写线程，调用方无需等待写入磁盘
+     * 同一玩家尚未写入的数据会被新数据合并覆盖
+     * 
+     * @param playerName 玩家名称
+     * @param userInfo API返回的用户信息
+     * @return CompletableFuture包装的保存结果
+     */
+    public static CompletableFuture<Boolean> savePlayerDataAsync(String playerName, playerXtnInfoApi.UserInfo userInfo) {
+        if (playerName == null || playerName.trim().isEmpty() || userInfo == null) {
+            logger.log(Level.WARNING, "Player name or user info is null, cannot save data");
+            return CompletableFuture.completedFuture(false);
+        }
+        
+        PlayerExtendedInfo info = PlayerExtendedInfo.fromUserInfo(playerName, userInfo);
+        PlayerExtendedInfoCache.put(playerName, info);
+        return PlayerDataWriteQueue.enqueue(playerName, userInfo, info.getFetchedAt());
+    }
+    
+    /**
+     * 获取玩家数据后台线程池
+     * 
+     * @return 用于玩家数据读写和API请求的执行器
+     */
+    public static PriorityExecutor getIoExecutor() {
+        return ioExecutor;
+    }
+    
     /**
      * 读取玩家数据JSON文件
-     * 如果文件不存在或读取失败，则自动从API重新请求数据
+     * 只读取本地数据（待写入队列、存储），不等待网络；本地没有数据时在后台从API请求，
+     * 请求完成后数据进入内存缓存和存储，调用方下次读取即可拿到
      * 
      * @param playerName 玩家名称
-     * @return JSON数据字符串，如果文件不存在或读取失败则返回null
+     * @return JSON数据字符串，如果本地没有数据或读取失败则返回null
      */
     public static String loadPlayerData(String playerName) {
         if (playerName == null || playerName.trim().isEmpty()) {
             return null;
         }
         
+        String storedData = loadStoredPlayerData(playerName);
+        if (storedData == null) {
+            requestPlayerInfoFromApiAsync(playerName, RequestPriority.INTERACTIVE);
+        }
+        return storedData;
+    }
+    
+    /**
+     * 只从本地存储读取玩家数据，不会请求API
+     * 
+     * @param playerName 玩家名称
+     * @return JSON数据字符串，如果文件不存在或读取失败则返回null
+     */
+    public static String loadStoredPlayerData(String playerName) {
+        if (playerName == null || playerName.trim().isEmpty()) {
+            return null;
+        }
+        
+        // 队列中尚未写入磁盘的数据或删除比文件更新
+        if (PlayerDataWriteQueue.isDeletePending(playerName)) {
+            return null;
+        }
+        String pendingRaw = PlayerDataWriteQueue.getPendingRaw(playerName);
+        if (pendingRaw != null) {
+            return pendingRaw;
+        }
+        playerXtnInfoApi.UserInfo pending = PlayerDataWriteQueue.getPending(playerName);
+        if (pending != null) {
+            return gson.toJson(pending);
+        }
+        
         try {
-            String fileName = sanitizeFileName(playerName) + ".json";
-            Path filePath = Paths.get(CACHE_DIR, fileName);
-            
-            if (!Files.exists(filePath)) {
-                return requestPlayerDataFromApi(playerName);
-            }
-            
-            return Files.readString(filePath);
-            
+            return getStore().readRaw(playerName);
         } catch (IOException e) {
-            return requestPlayerDataFromApi(playerName);
+            logger.log(Level.WARNING, "Failed to read player data for: " + playerName, e);
+            return null;
         }
     }
     
     /**
-     * 从API重新请求玩家数据
-     * 注意：API调用成功后会自动保存数据到文件，此方法会重试获取保存的文件
+     * 只从本地存储读取玩家扩展信息，不会请求API
      * 
      * @param playerName 玩家名称
-     * @return JSON数据字符串，如果请求失败则返回null
+     * @return 玩家扩展信息，如果文件不存在或读取失败则返回null
      */
-    private static String requestPlayerDataFromApi(String playerName) {
-        final int MAX_RETRIES = 3;
-        final int RETRY_DELAY_MS = 100;
+    public static PlayerExtendedInfo loadStoredPlayerInfo(String playerName) {
+        if (playerName == null || playerName.trim().isEmpty()) {
+            return null;
+        }
+        
+        // 队列中尚未写入磁盘的数据或删除比文件更新
+        if (PlayerDataWriteQueue.isDeletePending(playerName)) {
+            return null;
+        }
+        playerXtnInfoApi.UserInfo pending = PlayerDataWriteQueue.getPending(playerName);
+        if (pending != null) {
+            return PlayerExtendedInfo.fromUserInfo(playerName, pending);
+        }
         
         try {
-            // 创建API请求
-            playerXtnInfoApi.QueryUserXtnInfoRequest request = 
-                new playerXtnInfoApi.QueryUserXtnInfoRequest(Collections.singletonList(playerName));
-            
-            // 调用API获取数据（API会自动保存数据到文件）
-            playerXtnInfoApi.QueryUserXtnInfoResponse response = 
-                playerXtnInfoApi.queryUserXtnInfo(request);
-            
-            if (response.isSuccess() && response.getData() != null) {
-                playerXtnInfoApi.UserInfo userInfo = response.getUserInfo(playerName);
-                if (userInfo != null) {
-                    // API已经自动保存了数据，重试读取保存的文件
-                    String fileName = sanitizeFileName(playerName) + ".json";
-                    Path filePath = Paths.get(CACHE_DIR, fileName);
-                    
-                    for (int retry = 0; retry < MAX_RETRIES; retry++) {
-                        try {
-                            if (Files.exists(filePath)) {
-                                return Files.readString(filePath);
-                            }
-                            // 如果文件不存在，等待一段时间后重试
-                            if (retry < MAX_RETRIES - 1) {
-                                Thread.sleep(RETRY_DELAY_MS);
-                            }
-                        } catch (IOException e) {
-                            if (retry == MAX_RETRIES - 1) {
-                                // 最后一次重试失败，使用手动转换
-                                return gson.toJson(userInfo);
-                            }
-                            Thread.sleep(RETRY_DELAY_MS);
-                        }
-                    }
-                    
-                    // 所有重试都失败，使用手动转换作为备用方案
-                    return gson.toJson(userInfo);
+            String pendingRaw = PlayerDataWriteQueue.getPendingRaw(playerName);
+            if (pendingRaw != null) {
+                PlayerExtendedInfo info = PlayerDataCodec.readPlayerExtendedInfo(playerName, new StringReader(pendingRaw));
+                if (info != null && info.getFetchedAt() <= 0) {
+                    info.setFetchedAt(System.currentTimeMillis());
                 }
+                return info;
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Failed to request player data from API for: " + playerName, e);
+            return getStore().readInfo(playerName);
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Failed to decode player data for: " + playerName, e);
+            return null;
+        }
+    }
+    
+    /**
+     * 按存储键读取记录，playerName取记录中保存的原始玩家名（供重建UUID索引使用）
+     * JSON目录存储的存储键是替换过特殊字符的文件名，不一定等于玩家名
+     * 
+     * @param storedName listStoredPlayers返回的存储键
+     * @return 玩家扩展信息，记录中没有玩家名时playerName为null；读取失败返回null
+     */
+    static PlayerExtendedInfo loadStoredRecord(String storedName) {
+        try {
+            String raw = getStore().readRaw(storedName);
+            return raw != null ? PlayerDataCodec.readStoredRecord(new StringReader(raw)) : null;
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Failed to decode player data for: " + storedName, e);
+            return null;
+        }
+    }
+    
+    /**
+     * 按指定优先级从API异步请求玩家扩展信息
+     * 直接使用API返回的已反序列化对象在内存中转换，不再等待文件写入后重新读取；
+     * 等待响应期间不占用任何线程
+     * 
+     * @param playerName 玩家名称
+     * @param priority 请求优先级
+     * @return CompletableFuture包装的玩家扩展信息，如果请求失败或API没有该玩家则结果为null
+     */
+    public static CompletableFuture<PlayerExtendedInfo> requestPlayerInfoFromApiAsync(String playerName, RequestPriority priority) {
+        return requestUserInfoFromApi(playerName, priority).thenApply(userInfo -> {
+            if (userInfo == null) {
+                return null;
+            }
+            
+            PlayerExtendedInfo info = PlayerExtendedInfo.fromUserInfo(playerName, userInfo);
+            PlayerExtendedInfoCache.put(playerName, info);
+            return info;
+        });
+    }
+    
+    /**
+     * 在后台刷新玩家数据（用于过时数据）
+     * 同一玩家同时只会有一个刷新请求，调用方立即返回
+     * 
+     * @param playerName 玩家名称
+     */
+    public static void refreshPlayerDataInBackground(String playerName) {
+        if (playerName == null || playerName.trim().isEmpty()) {
+            return;
+        }
+        
+        if (!refreshingPlayers.add(playerName)) {
+            return;
+        }
+        
+        requestPlayerInfoFromApiAsync(playerName, RequestPriority.BACKGROUND)
+            .whenComplete((info, throwable) -> refreshingPlayers.remove(playerName));
+    }
+    
+    /**
+     * 从API重新请求玩家数据
+     * 注意：API调用成功后会在后台异步保存数据到文件，调用方直接使用返回的对象
+     * 
+     * @param playerName 玩家名称
+     * @param priority 请求优先级
+     * @return CompletableFuture包装的API返回的用户信息，如果请求失败、超时或该玩家在负缓存中则结果为null
+     */
+    private static CompletableFuture<playerXtnInfoApi.UserInfo> requestUserInfoFromApi(String playerName, RequestPriority priority) {
+        // API近期确认没有该玩家的数据时，单个玩家的前台查询直接返回，不发起网络请求；
+        // 后台刷新仍然发送，由单飞合并进批量请求
+        if (priority != RequestPriority.BACKGROUND && PlayerNegativeCache.isUnknown(playerName)) {
+            return CompletableFuture.completedFuture(null);
         }
         
-        return null;
+        // 同一玩家已有进行中的查询时复用其结果（API会在后台保存数据）；
+        // 超时只作用于副本，不会影响其他等待同一查询的调用方
+        return XtnInfoSingleFlight.query(playerName, priority)
+            .copy()
+            .completeOnTimeout(null, API_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .exceptionally(throwable -> {
+                logger.log(Level.SEVERE, "Failed to request player data from API for: " + playerName, throwable);
+                return null;
+            });
     }
     
     /**
-     * 检查玩家数据文件是否存在
+     * 检查本地是否保存了玩家数据
      * 
      * @param playerName 玩家名称
-     * @return 文件是否存在
+     * @return 数据是否存在
      */
     public static boolean playerDataExists(String playerName) {
         if (playerName == null || playerName.trim().isEmpty()) {
             return false;
         }
         
-        String fileName = sanitizeFileName(playerName) + ".json";
-        Path filePath = Paths.get(CACHE_DIR, fileName);
-        return Files.exists(filePath);
+        if (PlayerDataWriteQueue.isDeletePending(playerName)) {
+            return false;
+        }
+        return PlayerDataWriteQueue.getPending(playerName) != null
+                || PlayerDataWriteQueue.getPendingRaw(playerName) != null
+                || getStore().exists(playerName);
     }
     
     /**
-     * 删除玩家数据文件
+     * 删除玩家数据
+     * 删除以墓碑记录进入写入队列，与该玩家尚在写入的数据按顺序执行；
+     * 返回后读取方立即看不到该玩家的数据
      * 
      * @param playerName 玩家名称
-     * @return 是否删除成功
+     * @return 是否已受理删除
      */
     public static boolean deletePlayerData(String playerName) {
         if (playerName == null || playerName.trim().isEmpty()) {
@@ -213,19 +460,24 @@ public class PlayerDataStorage {
             return false;
         }
         
+        PlayerDataWriteQueue.enqueueDelete(playerName);
+        PlayerExtendedInfoCache.invalidate(playerName);
+        PlayerUuidIndex.remove(playerName);
+        return true;
+    }
+    
+    /**
+     * 从存储中删除玩家记录（供写入队列使用）
+     * 
+     * @param playerName 玩家名称
+     * @return 是否删除成功
+     */
+    static boolean deleteStoredRecord(String playerName) {
         try {
-            String fileName = sanitizeFileName(playerName) + ".json";
-            Path filePath = Paths.get(CACHE_DIR, fileName);
-            
-            if (!Files.exists(filePath)) {
-
-                return true;
-            }
-            
-            Files.delete(filePath);
-
+            // 删除之前正在写入的数据可能已把映射重新加入UUID索引
+            PlayerUuidIndex.remove(playerName);
+            getStore().delete(playerName);
             return true;
-            
         } catch (IOException e) {
             logger.log(Level.SEVERE, "Failed to delete player data for: " + playerName, e);
             return false;
@@ -248,35 +500,16 @@ public class PlayerDataStorage {
     }
     
     /**
-     * 清理文件名，移除不安全的字符
+     * 列出所有已保存数据的玩家名称
      * 
-     * @param fileName 原始文件名
-     * @return 清理后的安全文件名
+     * @return 玩家名称列表，读取失败时返回空列表
      */
-    private static String sanitizeFileName(String fileName) {
-        if (fileName == null) {
-            return "unknown";
-        }
-        
-        // 移除或替换不安全的字符
-        return fileName.replaceAll("[\\\\/:*?\"<>|]", "_")
-                      .replaceAll("\\s+", "_")
-                      .trim();
-    }
-    
-    /**
-     * 格式化JSON字符串
-     * 
-     * @param jsonData 原始JSON字符串
-     * @return 格式化后的JSON字符串
-     */
-    private static String formatJson(String jsonData) {
+    public static List<String> listStoredPlayers() {
         try {
-            JsonObject jsonObject = JsonParser.parseString(jsonData).getAsJsonObject();
-            return gson.toJson(jsonObject);
-        } catch (Exception e) {
-            logger.log(Level.WARNING, "Failed to format JSON, using original data", e);
-            return jsonData;
+            return getStore().listPlayers();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to list stored players", e);
+            return Collections.emptyList();
         }
     }
-}
\ No newline at end of file
+}
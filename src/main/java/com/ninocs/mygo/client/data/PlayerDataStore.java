@@ -0,0 +1,97 @@
+package com.ninocs.mygo.client.data;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 玩家数据存储引擎
+ * PlayerDataStorage通过该接口读写玩家记录，具体的磁盘布局由实现决定
+ */
+public interface PlayerDataStore {
+
+    /**
+     * 存储引擎类型
+     */
+    enum Engine {
+        // 每个玩家一个格式化的JSON文件
+        JSON_FILES,
+        // 单个追加写入的日志文件加索引
+        LOG
+    }
+
+    /**
+     * 玩家记录写入器
+     */
+    @FunctionalInterface
+    interface RecordWriter {
+        /**
+         * 将一条玩家记录写入JsonWriter
+         *
+         * @param out 输出
+         * @return 记录中的玩家UUID，没有则返回null
+         * @throws IOException 写入失败
+         */
+        String write(JsonWriter out) throws IOException;
+    }
+
+    /**
+     * 打开存储（创建目录、加载索引等），可重复调用
+     *
+     * @throws IOException 打开失败
+     */
+    void open() throws IOException;
+
+    /**
+     * 写入一条玩家记录，替换该玩家原有的记录
+     *
+     * @param playerName 玩家名称
+     * @param recordWriter 记录写入器
+     * @param fallbackData 记录写入失败时原样保存的数据，为null时写入失败即抛出异常
+     * @return 记录中的玩家UUID，没有则返回null
+     * @throws IOException 写入失败
+     */
+    String write(String playerName, RecordWriter recordWriter, String fallbackData) throws IOException;
+
+    /**
+     * 读取玩家记录的原始JSON
+     *
+     * @param playerName 玩家名称
+     * @return JSON字符串，不存在则返回null
+     * @throws IOException 读取失败
+     */
+    String readRaw(String playerName) throws IOException;
+
+    /**
+     * 读取并解码玩家扩展信息
+     *
+     * @param playerName 玩家名称
+     * @return 玩家扩展信息，不存在则返回null
+     * @throws IOException 读取或解码失败
+     */
+    PlayerExtendedInfo readInfo(String playerName) throws IOException;
+
+    /**
+     * 检查玩家记录是否存在
+     */
+    boolean exists(String playerName);
+
+    /**
+     * 删除玩家记录
+     *
+     * @param playerName 玩家名称
+     * @throws IOException 删除失败
+     */
+    void delete(String playerName) throws IOException;
+
+    /**
+     * 列出所有已保存的玩家名称
+     */
+    List<String> listPlayers() throws IOException;
+
+    /**
+     * 将内存中的状态（如索引）写入磁盘
+     */
+    void flush();
+}
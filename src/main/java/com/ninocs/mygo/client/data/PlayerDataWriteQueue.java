@@ -0,0 +1,250 @@
+package com.ninocs.mygo.client.data;
+
+import com.ninocs.mygo.api.playerXtnInfoApi;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 玩家数据写入队列（write-behind）
+ * 所有异步保存请求进入队列，由一个专用写线程批量写入磁盘：
+ *   - 同一玩家尚未写入的数据会被新数据覆盖，只写最后一次
+ *   - 删除以墓碑记录进入同一队列，与该玩家的写入按顺序执行，已经取出正在写入的数据不会在删除之后复活
+ *   - 每批只检查一次存储是否已打开
+ *   - 具体写入方式由存储引擎决定（JSON文件原子重命名或日志追加）
+ */
+public class PlayerDataWriteQueue {
+    private static final Logger logger = Logger.getLogger(PlayerDataWriteQueue.class.getName());
+
+    // 待写入的数据：玩家名 -> 最新数据
+    private static final ConcurrentHashMap<String, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+
+    // 待写入的玩家名，按入队顺序排列（同一玩家的多次保存合并为一次写入）
+    private static final BlockingQueue<String> writeOrder = new LinkedBlockingQueue<>();
+
+    static {
+        startWriterThread();
+    }
+
+    /**
+     * 待写入的玩家数据
+     * rawJson不为null时按原始JSON写入，此时userInfo为null；delete为true时表示删除该玩家的数据（墓碑）
+     */
+    private static final class PendingWrite {
+        private final playerXtnInfoApi.UserInfo userInfo;
+        private final String rawJson;
+        private final long fetchedAt;
+        private final boolean delete;
+        private final CompletableFuture<Boolean> future;
+
+        private PendingWrite(playerXtnInfoApi.UserInfo userInfo, String rawJson, long fetchedAt, boolean delete,
+                             CompletableFuture<Boolean> future) {
+            this.userInfo = userInfo;
+            this.rawJson = rawJson;
+            this.fetchedAt = fetchedAt;
+            this.delete = delete;
+            this.future = future;
+        }
+    }
+
+    private PlayerDataWriteQueue() {}
+
+    /**
+     * 将玩家数据加入写入队列
+     * 如果该玩家已有未写入的数据，则用新数据替换，并返回同一个Future
+     *
+     * @param playerName 玩家名称
+     * @param userInfo 用户信息
+     * @param fetchedAt 获取时间
+     * @return 写入完成后给出结果的Future
+     */
+    static CompletableFuture<Boolean> enqueue(String playerName, playerXtnInfoApi.UserInfo userInfo, long fetchedAt) {
+        return enqueue(playerName, userInfo, null, fetchedAt);
+    }
+
+    /**
+     * 将原始JSON格式的玩家数据加入写入队列，写入时逐个token复制为格式化输出
+     * 合并规则与{@link #enqueue(String, playerXtnInfoApi.UserInfo, long)}相同
+     *
+     * @param playerName 玩家名称
+     * @param rawJson 原始JSON数据
+     * @param fetchedAt 记录缺少获取时间时写入的值
+     * @return 写入完成后给出结果的Future
+     */
+    static CompletableFuture<Boolean> enqueueRaw(String playerName, String rawJson, long fetchedAt) {
+        return enqueue(playerName, null, rawJson, fetchedAt);
+    }
+
+    private static CompletableFuture<Boolean> enqueue(String playerName, playerXtnInfoApi.UserInfo userInfo, String rawJson, long fetchedAt) {
+        boolean[] added = new boolean[1];
+        PendingWrite write = pendingWrites.compute(playerName, (name, existing) -> {
+            if (existing == null) {
+                added[0] = true;
+                return new PendingWrite(userInfo, rawJson, fetchedAt, false, new CompletableFuture<>());
+            }
+            if (existing.delete) {
+                // 新数据覆盖尚未执行的删除，结果与先删除再保存相同
+                existing.future.complete(true);
+                return new PendingWrite(userInfo, rawJson, fetchedAt, false, new CompletableFuture<>());
+            }
+            return new PendingWrite(userInfo, rawJson, fetchedAt, false, existing.future);
+        });
+
+        if (added[0]) {
+            writeOrder.offer(playerName);
+        }
+        return write.future;
+    }
+
+    /**
+     * 将删除玩家数据加入写入队列
+     * 该玩家尚未写入的数据被墓碑替换（其Future以false完成）；正在写入的数据写完后删除随即执行
+     *
+     * @param playerName 玩家名称
+     * @return 删除完成后给出结果的Future
+     */
+    static CompletableFuture<Boolean> enqueueDelete(String playerName) {
+        boolean[] added = new boolean[1];
+        PendingWrite tombstone = pendingWrites.compute(playerName, (name, existing) -> {
+            if (existing == null) {
+                added[0] = true;
+            } else {
+                existing.future.complete(false);
+            }
+            return new PendingWrite(null, null, 0, true, new CompletableFuture<>());
+        });
+
+        if (added[0]) {
+            writeOrder.offer(playerName);
+        }
+        return tombstone.future;
+    }
+
+    /**
+     * 检查玩家是否有尚未执行的删除
+     *
+     * @param playerName 玩家名称
+     * @return 有待执行的删除时返回true，此时存储中的旧数据不应再被读取
+     */
+    static boolean isDeletePending(String playerName) {
+        PendingWrite write = pendingWrites.get(playerName);
+        return write != null && write.delete;
+    }
+
+    /**
+     * 获取尚未写入磁盘的玩家数据
+     *
+     * @param playerName 玩家名称
+     * @return 待写入的用户信息，没有或待写入的是原始JSON时返回null
+     */
+    static playerXtnInfoApi.UserInfo getPending(String playerName) {
+        PendingWrite write = pendingWrites.get(playerName);
+        return write != null ? write.userInfo : null;
+    }
+
+    /**
+     * 获取尚未写入磁盘的原始JSON格式玩家数据
+     *
+     * @param playerName 玩家名称
+     * @return 待写入的原始JSON，没有则返回null
+     */
+    static String getPendingRaw(String playerName) {
+        PendingWrite write = pendingWrites.get(playerName);
+        return write != null ? write.rawJson : null;
+    }
+
+    /**
+     * 获取待写入的玩家数量
+     */
+    public static int getPendingCount() {
+        return pendingWrites.size();
+    }
+
+    /**
+     * 在当前线程立即写入所有待写入的数据并刷新存储（用于退出时）
+     */
+    public static void flush() {
+        List<String> batch = new ArrayList<>();
+        writeOrder.drainTo(batch);
+        writeBatch(batch);
+        PlayerDataStorage.flushStore();
+    }
+
+    private static void startWriterThread() {
+        Thread thread = new Thread(PlayerDataWriteQueue::runWriter, "DFSpectatorUi-PlayerData-Writer");
+        thread.setDaemon(true);
+        thread.start();
+
+        // 写线程是守护线程，JVM退出前把剩余数据写完
+        Runtime.getRuntime().addShutdownHook(new Thread(PlayerDataWriteQueue::flush, "DFSpectatorUi-PlayerData-Flush"));
+    }
+
+    private static void runWriter() {
+        List<String> batch = new ArrayList<>();
+        while (true) {
+            try {
+                // 等待第一个写入请求，然后取走队列中已积累的全部请求作为一批
+                batch.add(writeOrder.take());
+                writeOrder.drainTo(batch);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Unexpected error in player data writer", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private static synchronized void writeBatch(List<String> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            PlayerDataStorage.ensureStoreOpen();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to open player data store, dropping " + batch.size() + " writes", e);
+            for (String playerName : batch) {
+                PendingWrite write = pendingWrites.remove(playerName);
+                if (write != null) {
+                    write.future.complete(false);
+                }
+            }
+            return;
+        }
+
+        for (String playerName : batch) {
+            PendingWrite write = pendingWrites.get(playerName);
+            if (write == null) {
+                continue;
+            }
+
+            boolean saved;
+            if (write.delete) {
+                saved = PlayerDataStorage.deleteStoredRecord(playerName);
+            } else if (write.rawJson != null) {
+                saved = PlayerDataStorage.writeRawRecord(playerName, write.rawJson, write.fetchedAt);
+            } else {
+                saved = PlayerDataStorage.writeUserInfoRecord(playerName, write.userInfo, write.fetchedAt);
+            }
+
+            // 写入完成后才移除，期间读取方仍可从队列拿到最新数据
+            // 如果写入期间数据被替换，则重新入队，Future在最新数据写入后再完成
+            if (pendingWrites.remove(playerName, write)) {
+                write.future.complete(saved);
+            } else {
+                writeOrder.offer(playerName);
+            }
+        }
+    }
+}
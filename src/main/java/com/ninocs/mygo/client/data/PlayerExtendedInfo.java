@@ -1,5 +1,7 @@
 package com.ninocs.mygo.client.data;
 
+import com.ninocs.mygo.api.playerXtnInfoApi;
+
 /**
  * 玩家扩展信息数据结构
  * 包含玩家的头像、卡片、横幅等扩展信息
@@ -16,6 +18,7 @@ public class PlayerExtendedInfo {
     private String userSpaceContexts;
     private String mvpMusicNm;
     private String loginIdNbr;
+    private long fetchedAt;         // 从API获取数据的时间（毫秒时间戳），0表示未知
 
     public PlayerExtendedInfo() {}
 
@@ -24,6 +27,32 @@ public class PlayerExtendedInfo {
         this.playerName = playerName;
     }
 
+    /**
+     * 从API返回的用户信息构建玩家扩展信息
+     *
+     * @param playerName 玩家名
+     * @param userInfo API返回的用户信息
+     * @return 玩家扩展信息，userInfo为null时返回null
+     */
+    public static PlayerExtendedInfo fromUserInfo(String playerName, playerXtnInfoApi.UserInfo userInfo) {
+        if (userInfo == null) {
+            return null;
+        }
+
+        PlayerExtendedInfo info = new PlayerExtendedInfo(userInfo.getPlayerUUID(), playerName);
+        info.setUserNm(userInfo.getUserNm());
+        info.setAvatar(userInfo.getAvatar());
+        info.setLoginIdNbr(userInfo.getLoginIdNbr());
+        info.setUserCard(userInfo.getUserCardUrl());
+        info.setUserBanner(userInfo.getUserBannerUrl());
+        info.setMvpMusicUrl(userInfo.getMvpMusicUrl());
+        info.setMvpVideosUrl(userInfo.getMvpVideosUrl());
+        info.setUserSpaceContexts(userInfo.getUserSpaceContextsUrl());
+        info.setMvpMusicNm(userInfo.getMvpMusicName());
+        info.setFetchedAt(System.currentTimeMillis());
+        return info;
+    }
+
     // Getter和Setter方法
     public String getPlayerUUID() {
         return playerUUID;
@@ -113,6 +142,14 @@ public class PlayerExtendedInfo {
         this.loginIdNbr = loginIdNbr;
     }
 
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public void setFetchedAt(long fetchedAt) {
+        this.fetchedAt = fetchedAt;
+    }
+
     // 便捷方法
     public boolean hasAvatar() {
         return avatar != null && !avatar.trim().isEmpty();
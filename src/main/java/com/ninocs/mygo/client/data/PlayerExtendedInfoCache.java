@@ -0,0 +1,144 @@
+package com.ninocs.mygo.client.data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 玩家扩展信息内存缓存
+ * 缓存已解析的PlayerExtendedInfo对象，避免每次查询都读取磁盘并重新解析JSON
+ * 容量有上限（按LRU淘汰），每个条目在TTL到期后失效
+ */
+public class PlayerExtendedInfoCache {
+    // 最大缓存条目数
+    private static final int MAX_ENTRIES = 512;
+
+    // 条目存活时间（毫秒）
+    private static final long ENTRY_TTL_MS = 10 * 60 * 1000L;
+
+    // 按访问顺序排列的LinkedHashMap，超出容量时淘汰最久未访问的条目
+    private static final Map<String, CacheEntry> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * 缓存条目
+     */
+    private static class CacheEntry {
+        private final PlayerExtendedInfo info;
+        private final long expiresAt;
+
+        CacheEntry(PlayerExtendedInfo info, long expiresAt) {
+            this.info = info;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private PlayerExtendedInfoCache() {}
+
+    /**
+     * 获取缓存的玩家扩展信息
+     *
+     * @param playerName 玩家名称
+     * @return 缓存的扩展信息，未命中或已过期返回null
+     */
+    public static PlayerExtendedInfo get(String playerName) {
+        if (playerName == null) {
+            return null;
+        }
+
+        synchronized (entries) {
+            CacheEntry entry = entries.get(playerName);
+            if (entry == null) {
+                return null;
+            }
+
+            if (System.currentTimeMillis() >= entry.expiresAt) {
+                entries.remove(playerName);
+                return null;
+            }
+
+            return entry.info;
+        }
+    }
+
+    /**
+     * 写入玩家扩展信息到缓存
+     *
+     * @param playerName 玩家名称
+     * @param info 已解析的扩展信息
+     */
+    public static void put(String playerName, PlayerExtendedInfo info) {
+        if (playerName == null || info == null) {
+            return;
+        }
+
+        synchronized (entries) {
+            entries.put(playerName, new CacheEntry(info, System.currentTimeMillis() + ENTRY_TTL_MS));
+        }
+    }
+
+    /**
+     * 仅当缓存中没有更新的数据时写入玩家扩展信息
+     * 用于磁盘读取的结果：读取期间API返回的更新数据可能已进入缓存，不应被旧数据覆盖
+     *
+     * @param playerName 玩家名称
+     * @param info 已解析的扩展信息，可以为null
+     * @return 写入后缓存中的扩展信息（缓存中已有更新的数据时返回该数据）
+     */
+    public static PlayerExtendedInfo putIfNewer(String playerName, PlayerExtendedInfo info) {
+        if (info == null) {
+            return get(playerName);
+        }
+        if (playerName == null) {
+            return info;
+        }
+
+        synchronized (entries) {
+            long now = System.currentTimeMillis();
+            CacheEntry existing = entries.get(playerName);
+            if (existing != null && now < existing.expiresAt
+                    && existing.info.getFetchedAt() >= info.getFetchedAt()) {
+                return existing.info;
+            }
+
+            entries.put(playerName, new CacheEntry(info, now + ENTRY_TTL_MS));
+            return info;
+        }
+    }
+
+    /**
+     * 使指定玩家的缓存失效
+     *
+     * @param playerName 玩家名称
+     */
+    public static void invalidate(String playerName) {
+        if (playerName == null) {
+            return;
+        }
+
+        synchronized (entries) {
+            entries.remove(playerName);
+        }
+    }
+
+    /**
+     * 清空所有缓存
+     */
+    public static void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * 获取当前缓存条目数
+     */
+    public static int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
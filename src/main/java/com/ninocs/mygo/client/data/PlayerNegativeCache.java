@@ -0,0 +1,209 @@
+package com.ninocs.mygo.client.data;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 未知玩家负缓存
+ * 记录API明确表示没有数据的玩家，在TTL内不再为这些玩家发起请求
+ * 持久化文件是只追加的日志，每行一条记录："playerName\t过期时间戳"，
+ * 清除标记时追加过期时间为0的记录；加载时按顺序回放，后面的记录覆盖前面的，
+ * 过期或被清除的条目过多时压缩重写
+ */
+public class PlayerNegativeCache {
+    private static final Logger logger = Logger.getLogger(PlayerNegativeCache.class.getName());
+
+    // 负缓存文件路径
+    private static final String CACHE_FILE = "MCGO/cache/unknown_players.txt";
+
+    // 负缓存条目存活时间（毫秒）
+    private static final long ENTRY_TTL_MS = 30 * 60 * 1000L;
+
+    // 文件行数超过有效条目数的该倍数时压缩
+    private static final int COMPACT_RATIO = 2;
+
+    // 玩家名 -> 过期时间
+    private static final Map<String, Long> unknownPlayers = new ConcurrentHashMap<>();
+
+    private static volatile boolean loaded = false;
+
+    private PlayerNegativeCache() {}
+
+    /**
+     * 从文件加载负缓存，丢弃已过期或已清除的条目
+     */
+    public static synchronized void load() {
+        if (loaded) {
+            return;
+        }
+
+        Path cacheFile = Paths.get(CACHE_FILE);
+        if (Files.exists(cacheFile)) {
+            long now = System.currentTimeMillis();
+            try {
+                List<String> lines = Files.readAllLines(cacheFile, StandardCharsets.UTF_8);
+                for (String line : lines) {
+                    int tab = line.lastIndexOf('\t');
+                    if (tab <= 0) {
+                        continue;
+                    }
+                    try {
+                        long expiresAt = Long.parseLong(line.substring(tab + 1));
+                        if (expiresAt > now) {
+                            unknownPlayers.put(line.substring(0, tab), expiresAt);
+                        } else {
+                            unknownPlayers.remove(line.substring(0, tab));
+                        }
+                    } catch (NumberFormatException e) {
+                        logger.log(Level.FINE, "Skipping malformed negative cache line: " + line);
+                    }
+                }
+
+                if (lines.size() > Math.max(64, unknownPlayers.size() * COMPACT_RATIO)) {
+                    rewriteCacheFile();
+                }
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to load negative player cache: " + cacheFile, e);
+            }
+        }
+
+        loaded = true;
+    }
+
+    /**
+     * 检查玩家是否被API标记为未知（且未过期）
+     *
+     * @param playerName 玩家名
+     * @return 是否为未知玩家
+     */
+    public static boolean isUnknown(String playerName) {
+        if (playerName == null) {
+            return false;
+        }
+
+        ensureLoaded();
+        Long expiresAt = unknownPlayers.get(playerName);
+        if (expiresAt == null) {
+            return false;
+        }
+
+        if (System.currentTimeMillis() >= expiresAt) {
+            unknownPlayers.remove(playerName, expiresAt);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 将玩家标记为未知
+     *
+     * @param playerNames 玩家名列表
+     */
+    public static synchronized void markUnknown(Collection<String> playerNames) {
+        if (playerNames == null || playerNames.isEmpty()) {
+            return;
+        }
+
+        ensureLoaded();
+        long expiresAt = System.currentTimeMillis() + ENTRY_TTL_MS;
+        List<String> lines = new ArrayList<>();
+        for (String playerName : playerNames) {
+            if (playerName != null) {
+                unknownPlayers.put(playerName, expiresAt);
+                lines.add(playerName + "\t" + expiresAt);
+            }
+        }
+        appendLines(lines);
+    }
+
+    /**
+     * 清除玩家的未知标记（API后续返回了这些玩家的数据）
+     *
+     * @param playerNames 玩家名列表
+     */
+    public static synchronized void invalidate(Collection<String> playerNames) {
+        if (playerNames == null || playerNames.isEmpty()) {
+            return;
+        }
+
+        ensureLoaded();
+        List<String> lines = new ArrayList<>();
+        for (String playerName : playerNames) {
+            if (playerName != null && unknownPlayers.remove(playerName) != null) {
+                lines.add(playerName + "\t0");
+            }
+        }
+        appendLines(lines);
+    }
+
+    /**
+     * 获取当前负缓存条目数
+     */
+    public static int size() {
+        ensureLoaded();
+        return unknownPlayers.size();
+    }
+
+    private static void ensureLoaded() {
+        if (!loaded) {
+            load();
+        }
+    }
+
+    /**
+     * 把记录追加到文件末尾，只写入本次变化的条目
+     */
+    private static synchronized void appendLines(List<String> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        Path cacheFile = Paths.get(CACHE_FILE);
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(cacheFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to append to negative player cache: " + cacheFile, e);
+        }
+    }
+
+    /**
+     * 只保留未过期的条目重写文件
+     */
+    private static synchronized void rewriteCacheFile() throws IOException {
+        Path cacheFile = Paths.get(CACHE_FILE);
+        Files.createDirectories(cacheFile.getParent());
+        Path tempFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+
+        long now = System.currentTimeMillis();
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Long> entry : unknownPlayers.entrySet()) {
+                if (entry.getValue() > now) {
+                    writer.write(entry.getKey() + "\t" + entry.getValue());
+                    writer.newLine();
+                }
+            }
+        }
+
+        Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,235 @@
+package com.ninocs.mygo.client.data;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 玩家UUID索引
+ * 维护 UUID -> 玩家名 的映射，使按UUID查找玩家数据不再需要遍历所有数据文件
+ * 索引以追加写入的日志文件持久化，每行一条记录：
+ *   "uuid\tplayerName" 表示建立映射，"\tplayerName" 表示删除该玩家的映射
+ */
+public class PlayerUuidIndex {
+    private static final Logger logger = Logger.getLogger(PlayerUuidIndex.class.getName());
+
+    // 索引文件路径
+    private static final String INDEX_FILE = "MCGO/cache/player_uuid.idx";
+
+    // 日志行数超过有效条目数的该倍数时进行压缩
+    private static final int COMPACT_RATIO = 2;
+
+    // UUID -> 玩家名
+    private static final Map<String, String> uuidToName = new ConcurrentHashMap<>();
+
+    // 玩家名 -> UUID（用于按玩家名删除）
+    private static final Map<String, String> nameToUuid = new ConcurrentHashMap<>();
+
+    private static volatile boolean loaded = false;
+
+    private PlayerUuidIndex() {}
+
+    /**
+     * 加载索引到内存
+     * 如果索引文件不存在，则扫描一次已保存的玩家数据重建索引
+     */
+    public static synchronized void load() {
+        if (loaded) {
+            return;
+        }
+
+        Path indexFile = Paths.get(INDEX_FILE);
+        try {
+            if (Files.exists(indexFile)) {
+                List<String> lines = Files.readAllLines(indexFile, StandardCharsets.UTF_8);
+                for (String line : lines) {
+                    applyLine(line);
+                }
+
+                if (lines.size() > Math.max(64, uuidToName.size() * COMPACT_RATIO)) {
+                    rewriteIndexFile();
+                }
+            } else {
+                rebuildFromStoredData();
+                rewriteIndexFile();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to load player UUID index: " + indexFile, e);
+        }
+
+        loaded = true;
+    }
+
+    /**
+     * 根据UUID查找玩家名
+     *
+     * @param playerUUID 玩家UUID
+     * @return 玩家名，未找到返回null
+     */
+    public static String getPlayerName(String playerUUID) {
+        String key = normalizeUuid(playerUUID);
+        if (key == null) {
+            return null;
+        }
+
+        ensureLoaded();
+        return uuidToName.get(key);
+    }
+
+    /**
+     * 记录UUID与玩家名的映射
+     *
+     * @param playerUUID 玩家UUID
+     * @param playerName 玩家名
+     */
+    public static synchronized void put(String playerUUID, String playerName) {
+        String key = normalizeUuid(playerUUID);
+        if (key == null || playerName == null || playerName.trim().isEmpty()) {
+            return;
+        }
+
+        ensureLoaded();
+
+        // 映射未变化时不写入文件
+        if (playerName.equals(uuidToName.get(key)) && key.equals(nameToUuid.get(playerName))) {
+            return;
+        }
+
+        removeMapping(playerName);
+        String previousName = uuidToName.put(key, playerName);
+        if (previousName != null && !previousName.equals(playerName)) {
+            nameToUuid.remove(previousName);
+        }
+        nameToUuid.put(playerName, key);
+
+        appendLine(key + "\t" + playerName);
+    }
+
+    /**
+     * 删除玩家的UUID映射
+     *
+     * @param playerName 玩家名
+     */
+    public static synchronized void remove(String playerName) {
+        if (playerName == null) {
+            return;
+        }
+
+        ensureLoaded();
+
+        if (removeMapping(playerName)) {
+            appendLine("\t" + playerName);
+        }
+    }
+
+    /**
+     * 获取索引中的条目数
+     */
+    public static int size() {
+        ensureLoaded();
+        return uuidToName.size();
+    }
+
+    private static void ensureLoaded() {
+        if (!loaded) {
+            load();
+        }
+    }
+
+    private static boolean removeMapping(String playerName) {
+        String oldUuid = nameToUuid.remove(playerName);
+        if (oldUuid == null) {
+            return false;
+        }
+        uuidToName.remove(oldUuid, playerName);
+        return true;
+    }
+
+    private static void applyLine(String line) {
+        int tab = line.indexOf('\t');
+        if (tab < 0 || tab == line.length() - 1) {
+            return;
+        }
+
+        String uuid = line.substring(0, tab);
+        String playerName = line.substring(tab + 1);
+        removeMapping(playerName);
+        if (!uuid.isEmpty()) {
+            String previousName = uuidToName.put(uuid, playerName);
+            if (previousName != null) {
+                nameToUuid.remove(previousName);
+            }
+            nameToUuid.put(playerName, uuid);
+        }
+    }
+
+    private static void appendLine(String line) {
+        try {
+            Path indexFile = Paths.get(INDEX_FILE);
+            Files.createDirectories(indexFile.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(line);
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to append to player UUID index", e);
+        }
+    }
+
+    /**
+     * 将内存中的索引完整写出，替换原有的日志文件
+     */
+    private static void rewriteIndexFile() throws IOException {
+        Path indexFile = Paths.get(INDEX_FILE);
+        Files.createDirectories(indexFile.getParent());
+        Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> entry : uuidToName.entrySet()) {
+                writer.write(entry.getKey() + "\t" + entry.getValue());
+                writer.newLine();
+            }
+        }
+
+        Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 扫描已保存的玩家数据重建索引（仅在索引文件不存在时执行一次）
+     */
+    private static void rebuildFromStoredData() {
+        for (String storedName : PlayerDataStorage.listStoredPlayers()) {
+            PlayerExtendedInfo info = PlayerDataStorage.loadStoredRecord(storedName);
+            String key = normalizeUuid(info != null ? info.getPlayerUUID() : null);
+            if (key != null) {
+                // JSON目录存储的文件名替换过特殊字符，以记录中保存的玩家名为准；旧记录没有时才使用存储键
+                String playerName = info.getPlayerName() != null ? info.getPlayerName() : storedName;
+                uuidToName.put(key, playerName);
+                nameToUuid.put(playerName, key);
+            }
+        }
+    }
+
+    /**
+     * 规范化UUID：去掉连字符并转为小写，使带/不带连字符的写法都能命中
+     */
+    private static String normalizeUuid(String uuid) {
+        if (uuid == null) {
+            return null;
+        }
+        String normalized = uuid.trim().replace("-", "").toLowerCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : normalized;
+    }
+}
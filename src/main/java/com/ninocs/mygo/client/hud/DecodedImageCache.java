@@ -0,0 +1,108 @@
+package com.ninocs.mygo.client.hud;
+
+import com.mojang.blaze3d.platform.NativeImage;
+import com.mojang.logging.LogUtils;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 预先解码的图片缓存
+ * 流水线的纹理阶段在后台线程中把下载好的头像/卡片解码为NativeImage放在这里，
+ * 渲染线程加载纹理时直接取走，省去在渲染线程上读文件和解码PNG
+ */
+public class DecodedImageCache {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    // 最多保留的已解码图片数，超出时关闭最久未使用的
+    private static final int MAX_ENTRIES = 8;
+
+    // 图片路径 -> 解码结果，按访问顺序排列，由类锁保护
+    private static final LinkedHashMap<Path, Decoded> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 已解码的图片，记录解码时文件的修改时间，文件被重新下载后作废
+     */
+    private record Decoded(NativeImage image, long lastModified) {}
+
+    private DecodedImageCache() {}
+
+    /**
+     * 读取并解码图片文件放入缓存（在后台线程中调用）
+     *
+     * @param imagePath 图片的本地路径
+     */
+    public static void decode(String imagePath) {
+        Path path = normalize(imagePath);
+        try {
+            long lastModified = Files.getLastModifiedTime(path).toMillis();
+            synchronized (DecodedImageCache.class) {
+                Decoded existing = cache.get(path);
+                if (existing != null && existing.lastModified() == lastModified) {
+                    return;
+                }
+            }
+
+            NativeImage image;
+            try (InputStream in = Files.newInputStream(path)) {
+                image = NativeImage.read(in);
+            }
+            put(path, new Decoded(image, lastModified));
+        } catch (IOException e) {
+            LOGGER.debug("[DFSpectatorUi] 预解码图片失败: {}", imagePath, e);
+        }
+    }
+
+    /**
+     * 取走已解码的图片，调用者负责关闭（交给DynamicTexture后由纹理管理器释放）
+     *
+     * @param imagePath 图片的本地路径
+     * @return 已解码的图片；未缓存或文件已变化时返回null
+     */
+    public static NativeImage take(String imagePath) {
+        Path path = normalize(imagePath);
+        Decoded decoded;
+        synchronized (DecodedImageCache.class) {
+            decoded = cache.remove(path);
+        }
+        if (decoded == null) {
+            return null;
+        }
+
+        try {
+            if (Files.getLastModifiedTime(path).toMillis() == decoded.lastModified()) {
+                return decoded.image();
+            }
+        } catch (IOException e) {
+            // 文件已被删除，按未缓存处理
+        }
+        decoded.image().close();
+        return null;
+    }
+
+    private static void put(Path path, Decoded decoded) {
+        synchronized (DecodedImageCache.class) {
+            Decoded previous = cache.put(path, decoded);
+            if (previous != null) {
+                previous.image().close();
+            }
+
+            Iterator<Map.Entry<Path, Decoded>> iterator = cache.entrySet().iterator();
+            while (cache.size() > MAX_ENTRIES && iterator.hasNext()) {
+                iterator.next().getValue().image().close();
+                iterator.remove();
+            }
+        }
+    }
+
+    private static Path normalize(String imagePath) {
+        return Paths.get(imagePath).toAbsolutePath().normalize();
+    }
+}
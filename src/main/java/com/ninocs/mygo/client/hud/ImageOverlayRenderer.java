@@ -3,10 +3,13 @@ package com.ninocs.mygo.client.hud;
 import com.mojang.blaze3d.platform.NativeImage;
 import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.logging.LogUtils;
+import com.ninocs.mygo.api.XtnInfoPipeline;
 import com.ninocs.mygo.client.data.PlayerExtendedInfo;
 import com.ninocs.mygo.map.PlayerExtendedInfoReader;
+import com.ninocs.mygo.downloads.ImageBlobStore;
 import com.ninocs.mygo.downloads.ImageDownloader;
-import com.ninocs.mygo.util.SHA256;
+import com.ninocs.mygo.util.RequestPriority;
+import com.ninocs.mygo.util.VerifiedHashIndex;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.GuiGraphics;
 import net.minecraft.client.multiplayer.PlayerInfo;
@@ -25,6 +28,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Comparator;
 
 @Mod.EventBusSubscriber(modid = "dfspectatorui", value = Dist.CLIENT)
 public class ImageOverlayRenderer {
@@ -53,6 +57,9 @@ public class ImageOverlayRenderer {
     // 当前观察的玩家名称（用于动态加载数据）
     private static String currentObservedPlayer = null;
     
+    // 正在异步读取扩展信息的玩家名称
+    private static String pendingInfoPlayer = null;
+    
     // 下载状态跟踪
     private static boolean isAvatarDownloading = false;
     private static String downloadingAvatarUrl = null;
@@ -68,6 +75,15 @@ public class ImageOverlayRenderer {
     // 头像相关常量
     private static final int AVATAR_SIZE = 24; // 头像尺寸 (24x24像素)
     private static final int AVATAR_MARGIN = 3; // 头像边距
+    
+    // 观察目标附近玩家的预读范围（方块）和人数
+    private static final double PREFETCH_RADIUS = 16.0;
+    private static final int PREFETCH_NEARBY_COUNT = 3;
+
+    static {
+        // 交互和即将查看的玩家图片下载完成后在流水线的纹理阶段预先解码
+        XtnInfoPipeline.setTextureDecoder(DecodedImageCache::decode);
+    }
 
     /**
      * 启用HUD显示
@@ -83,39 +99,18 @@ public class ImageOverlayRenderer {
     }
     
     /**
-     * 验证图片文件的SHA256哈希值
+     * 检查图片文件是否已通过SHA256验证且之后未变化
+     * 只比较VerifiedHashIndex中记录的文件元数据，不在渲染线程上读取和计算文件；
+     * 未验证或已变化的文件交给下载器在后台重新计算（验证通过时无需重新下载）
      * @param imagePath 图片文件路径
-     * @param imageUrl 图片URL（包含SHA256）
-     * @return true如果验证通过，false如果验证失败
+     * @param imageUrl 图片URL（包含SHA256，或已记录过内容摘要）
+     * @return true如果可以直接加载
      */
-    private static boolean verifyImageSHA256(String imagePath, String imageUrl) {
+    private static boolean isVerifiedImage(String imagePath, String imageUrl) {
         if (imagePath == null || imageUrl == null) {
             return false;
         }
-        
-        try {
-            Path path = Paths.get(imagePath);
-            if (!Files.exists(path)) {
-                return false;
-            }
-            
-            // 使用SHA256工具类验证文件
-            boolean isValid = SHA256.verifyUrlFileSHA256(imageUrl, imagePath);
-            
-            if (!isValid) {
-                // 删除无效文件
-                try {
-                    Files.deleteIfExists(path);
-                } catch (IOException e) {
-                    LOGGER.error("[DFSpectatorUi] 删除无效图片文件失败: {}", imagePath, e);
-                }
-            }
-            
-            return isValid;
-        } catch (Exception e) {
-            LOGGER.error("[DFSpectatorUi] 验证图片SHA256时发生错误: {}", imagePath, e);
-            return false;
-        }
+        return VerifiedHashIndex.isVerified(Paths.get(imagePath), ImageBlobStore.getDigest(imageUrl));
     }
 
     /**
@@ -130,8 +125,8 @@ public class ImageOverlayRenderer {
             dynamicTexture = null;
             downloadingCardUrl = userCardUrl;
             
-            // 设置下载完成回调
-            var downloadTask = ImageDownloader.getUserCardDownloadTask(userCardUrl);
+            // 后台预取中的下载提升为交互优先级，并设置下载完成回调
+            var downloadTask = ImageDownloader.downloadUserCard(userCardUrl, playerName, null, RequestPriority.INTERACTIVE);
             if (downloadTask != null) {
                 downloadTask.thenAccept(result -> {
                     if (result.isSuccess() && userCardUrl.equals(downloadingCardUrl)) {
@@ -168,7 +163,7 @@ public class ImageOverlayRenderer {
                     dynamicTexture = null;
                     downloadingCardUrl = null;
                 }
-            });
+            }, RequestPriority.INTERACTIVE);
         }
     }
 
@@ -184,8 +179,8 @@ public class ImageOverlayRenderer {
             isAvatarDownloading = true;
             downloadingAvatarUrl = avatarUrl;
             
-            // 设置下载完成回调
-            var downloadTask = ImageDownloader.getAvatarDownloadTask(avatarUrl);
+            // 后台预取中的下载提升为交互优先级，并设置下载完成回调
+            var downloadTask = ImageDownloader.downloadAvatar(avatarUrl, playerName, null, RequestPriority.INTERACTIVE);
             if (downloadTask != null) {
                 downloadTask.thenAccept(result -> {
                     if (result.isSuccess() && avatarUrl.equals(downloadingAvatarUrl)) {
@@ -228,7 +223,7 @@ public class ImageOverlayRenderer {
                     downloadingAvatarUrl = null;
                     // 下载失败，继续使用原生皮肤逻辑
                 }
-            });
+            }, RequestPriority.INTERACTIVE);
         }
     }
 
@@ -245,9 +240,12 @@ public class ImageOverlayRenderer {
                 Minecraft.getInstance().getTextureManager().release(avatarTexture);
             }
 
-            // 读取头像文件
+            // 优先使用流水线预先解码好的图片，否则读取头像文件
             try (FileInputStream fis = new FileInputStream(fullPath.toFile())) {
-                NativeImage nativeImage = NativeImage.read(fis);
+                NativeImage nativeImage = DecodedImageCache.take(avatarPath);
+                if (nativeImage == null) {
+                    nativeImage = NativeImage.read(fis);
+                }
                 
                 // 创建动态纹理
                 DynamicTexture texture = new DynamicTexture(nativeImage);
@@ -289,9 +287,12 @@ public class ImageOverlayRenderer {
                 Minecraft.getInstance().getTextureManager().release(dynamicTexture);
             }
 
-            // 读取图片文件
+            // 优先使用流水线预先解码好的图片，否则读取图片文件
             try (FileInputStream fis = new FileInputStream(fullPath.toFile())) {
-                NativeImage nativeImage = NativeImage.read(fis);
+                NativeImage nativeImage = DecodedImageCache.take(imagePath);
+                if (nativeImage == null) {
+                    nativeImage = NativeImage.read(fis);
+                }
                 
                 // 更新图片尺寸
                 imageWidth = nativeImage.getWidth();
@@ -311,34 +312,114 @@ public class ImageOverlayRenderer {
     
     /**
      * 加载玩家数据（包括头像和卡片）
+     * 玩家扩展信息在后台异步读取，读取完成前显示占位内容，不阻塞渲染线程
      */
     private static void loadPlayerData(String playerName) {
         if (playerName == null || playerName.isEmpty()) {
             return;
         }
 
-        // 使用新的PlayerExtendedInfoReader读取玩家扩展信息
-        PlayerExtendedInfo playerInfo = PlayerExtendedInfoReader.readPlayerExtendedInfo(playerName);
+        pendingInfoPlayer = playerName;
+        var infoFuture = PlayerExtendedInfoReader.readPlayerExtendedInfoAsync(playerName, RequestPriority.INTERACTIVE);
+        
+        // 观察目标附近的玩家很可能是下一个观察目标，提前以次高优先级读取
+        prefetchNearbyPlayers(playerName);
+        
+        // 内存缓存命中时Future已完成，直接应用
+        if (infoFuture.isDone()) {
+            pendingInfoPlayer = null;
+            applyPlayerInfo(playerName, infoFuture.getNow(null));
+            return;
+        }
         
+        // 读取完成前显示占位内容
+        showPlaceholder(playerName);
+        
+        infoFuture.thenAccept(playerInfo -> Minecraft.getInstance().execute(() -> {
+            // 只应用仍在等待的玩家的数据（期间观察目标可能已经切换）
+            if (playerName.equals(pendingInfoPlayer)) {
+                pendingInfoPlayer = null;
+                applyPlayerInfo(playerName, playerInfo);
+            }
+        }));
+    }
+    
+    /**
+     * 以LIKELY_NEXT优先级预读观察目标附近几名玩家的扩展信息
+     * @param playerName 当前观察的玩家名称
+     */
+    private static void prefetchNearbyPlayers(String playerName) {
+        Minecraft mc = Minecraft.getInstance();
+        Player target = findPlayerEntity(playerName);
+        if (mc.level == null || target == null) {
+            return;
+        }
+        
+        mc.level.players().stream()
+            .filter(player -> player != target && player != mc.player)
+            .filter(player -> player.distanceToSqr(target) <= PREFETCH_RADIUS * PREFETCH_RADIUS)
+            .sorted(Comparator.comparingDouble(player -> player.distanceToSqr(target)))
+            .limit(PREFETCH_NEARBY_COUNT)
+            .forEach(player -> PlayerExtendedInfoReader.readPlayerExtendedInfoAsync(
+                    player.getName().getString(), RequestPriority.LIKELY_NEXT));
+    }
+    
+    /**
+     * 显示占位内容：不显示卡片背景，头像使用原生皮肤
+     */
+    private static void showPlaceholder(String playerName) {
+        dynamicTexture = null;
+        downloadingCardUrl = null;
+        isAvatarDownloading = false;
+        downloadingAvatarUrl = null;
+        avatarTexture = null;
+        
+        currentPlayer = findPlayerEntity(playerName);
+        useNativeSkin = currentPlayer != null;
+    }
+    
+    /**
+     * 在当前世界中查找玩家实体
+     * @param playerName 玩家名称
+     * @return 玩家实体，找不到返回null
+     */
+    private static Player findPlayerEntity(String playerName) {
+        Minecraft mc = Minecraft.getInstance();
+        if (mc.level == null) {
+            return null;
+        }
+        
+        // 如果是当前玩家
+        if (mc.player != null && playerName.equals(mc.player.getName().getString())) {
+            return mc.player;
+        }
+        
+        // 查找其他玩家
+        for (Player player : mc.level.players()) {
+            if (playerName.equals(player.getName().getString())) {
+                return player;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 应用读取到的玩家扩展信息（必须在渲染线程调用）
+     * @param playerName 玩家名称
+     * @param playerInfo 玩家扩展信息，可能为null
+     */
+    private static void applyPlayerInfo(String playerName, PlayerExtendedInfo playerInfo) {
         if (playerInfo != null) {
             // 处理用户卡片
             String userCardUrl = playerInfo.getUserCard();
             if (playerInfo.hasUserCard()) {
                 // 使用ImageDownloader的方法获取正确的缓存路径
                 String cardPath = ImageDownloader.getUserCardCachePath(userCardUrl);
-                Path cardPathObj = Paths.get(cardPath);
                 
-                // 检查文件是否已存在并验证SHA256
-                if (Files.exists(cardPathObj)) {
-                    // 验证SHA256哈希值
-                    if (verifyImageSHA256(cardPath, userCardUrl)) {
-                        loadExternalImage(cardPath);
-                        downloadingCardUrl = null;
-                    } else {
-                        // SHA256验证失败，重新下载
-                        // 文件已在verifyImageSHA256中被删除，继续下载流程
-                        startCardDownload(playerName, userCardUrl);
-                    }
+                // 已验证且未变化的文件直接加载，否则由下载器在后台验证或重新下载
+                if (isVerifiedImage(cardPath, userCardUrl)) {
+                    loadExternalImage(cardPath);
+                    downloadingCardUrl = null;
                 } else {
                     startCardDownload(playerName, userCardUrl);
                 }
@@ -353,24 +434,15 @@ public class ImageOverlayRenderer {
             if (playerInfo.hasAvatar()) {
                 // 使用ImageDownloader的方法获取正确的缓存路径
                 String avatarPath = ImageDownloader.getAvatarCachePath(avatarUrl);
-                Path path = Paths.get(avatarPath);
                 
-                // 检查文件是否已存在并验证SHA256
-                if (Files.exists(path)) {
-                    // 验证SHA256哈希值
-                    if (verifyImageSHA256(avatarPath, avatarUrl)) {
-                        loadAvatarImage(avatarPath);
-                        useNativeSkin = false;
-                        currentPlayer = null;
-                        isAvatarDownloading = false;
-                        downloadingAvatarUrl = null;
-                        return;
-                    } else {
-                        // SHA256验证失败，重新下载
-                        // 文件已在verifyImageSHA256中被删除，继续下载流程
-                        startAvatarDownload(playerName, avatarUrl);
-                        return;
-                    }
+                // 已验证且未变化的文件直接加载，否则由下载器在后台验证或重新下载
+                if (isVerifiedImage(avatarPath, avatarUrl)) {
+                    loadAvatarImage(avatarPath);
+                    useNativeSkin = false;
+                    currentPlayer = null;
+                    isAvatarDownloading = false;
+                    downloadingAvatarUrl = null;
+                    return;
                 } else {
                     startAvatarDownload(playerName, avatarUrl);
                 }
@@ -388,57 +460,21 @@ public class ImageOverlayRenderer {
         
         // 如果没有自定义头像或头像正在下载，使用原生皮肤
         if (!isAvatarDownloading && avatarTexture == null) {
-            Minecraft mc = Minecraft.getInstance();
-            if (mc.level != null) {
-                // 查找玩家实体
-                Player targetPlayer = null;
-                
-                // 如果是当前玩家
-                if (mc.player != null && playerName.equals(mc.player.getName().getString())) {
-                    targetPlayer = mc.player;
-                } else {
-                    // 查找其他玩家
-                    for (Player player : mc.level.players()) {
-                        if (playerName.equals(player.getName().getString())) {
-                            targetPlayer = player;
-                            break;
-                        }
-                    }
-                }
-                
-                if (targetPlayer != null) {
-                    currentPlayer = targetPlayer;
-                    useNativeSkin = true;
-                    return;
-                }
+            Player targetPlayer = findPlayerEntity(playerName);
+            if (targetPlayer != null) {
+                currentPlayer = targetPlayer;
+                useNativeSkin = true;
+                return;
             }
         }
         
         // 如果头像正在下载，也使用原生皮肤作为临时显示
         if (isAvatarDownloading) {
-            Minecraft mc = Minecraft.getInstance();
-            if (mc.level != null) {
-                // 查找玩家实体
-                Player targetPlayer = null;
-                
-                // 如果是当前玩家
-                if (mc.player != null && playerName.equals(mc.player.getName().getString())) {
-                    targetPlayer = mc.player;
-                } else {
-                    // 查找其他玩家
-                    for (Player player : mc.level.players()) {
-                        if (playerName.equals(player.getName().getString())) {
-                            targetPlayer = player;
-                            break;
-                        }
-                    }
-                }
-                
-                if (targetPlayer != null) {
-                    currentPlayer = targetPlayer;
-                    useNativeSkin = true;
-                    return;
-                }
+            Player targetPlayer = findPlayerEntity(playerName);
+            if (targetPlayer != null) {
+                currentPlayer = targetPlayer;
+                useNativeSkin = true;
+                return;
             }
         }
         
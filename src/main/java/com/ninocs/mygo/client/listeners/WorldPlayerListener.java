@@ -2,7 +2,11 @@ package com.ninocs.mygo.client.listeners;
 
 import com.mojang.logging.LogUtils;
 import com.ninocs.mygo.DFSpectatorUi;
+import com.ninocs.mygo.api.XtnInfoCircuitBreaker;
+import com.ninocs.mygo.api.XtnInfoSingleFlight;
 import com.ninocs.mygo.api.playerXtnInfoApi;
+import com.ninocs.mygo.downloads.ImageDownloader;
+import com.ninocs.mygo.util.RequestPriority;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.world.entity.player.Player;
@@ -170,6 +174,9 @@ public class WorldPlayerListener {
     private static void handleWorldEntry() {
         worldState = WorldState.ENTERING_WORLD;
         
+        // 在等待世界加载期间完成握手，首个HUD请求直接复用已建立的连接
+        prewarmConnections();
+        
         // 异步执行初始加载
         CompletableFuture.runAsync(() -> {
             try {
@@ -187,6 +194,20 @@ public class WorldPlayerListener {
         });
     }
 
+    /**
+     * 预热到API服务器和图片源站的连接
+     */
+    private static void prewarmConnections() {
+        long startTime = System.currentTimeMillis();
+        CompletableFuture.allOf(
+                playerXtnInfoApi.prewarmConnection()
+                    .thenAccept(warmed -> LOGGER.debug("[WorldPlayerListener] API连接预热{}", warmed ? "完成" : "跳过或失败")),
+                ImageDownloader.prewarmConnections()
+                    .thenAccept(count -> LOGGER.debug("[WorldPlayerListener] 已预热 {} 个图片源站连接", count)))
+            .whenComplete((ignored, throwable) ->
+                LOGGER.debug("[WorldPlayerListener] 连接预热耗时 {} ms", System.currentTimeMillis() - startTime));
+    }
+
     /**
      * 执行初始加载
      */
@@ -258,9 +279,16 @@ public class WorldPlayerListener {
      */
     private static void handleNewPlayer(String playerName) {
         if (playerStateManager.isNewPlayer(playerName) && !playerStateManager.isRequested(playerName)) {
-            // 立即请求新玩家信息
-            requestPlayersInfo(List.of(playerName), false);
             playerStateManager.markAsRequested(playerName);
+            
+            // 同一玩家的并发查询只发一次，短时间内加入的多个玩家合并为一次批量请求
+            // 后台预取使用最低优先级，观察目标的请求可以插队；
+            // 负缓存中的玩家也参与批量请求（合并后几乎没有额外开销），以便及时发现新注册的玩家
+            XtnInfoSingleFlight.query(playerName, RequestPriority.BACKGROUND)
+                .exceptionally(throwable -> {
+                    LOGGER.error("[WorldPlayerListener] 请求玩家 {} 信息时发生异常", playerName, throwable);
+                    return null;
+                });
         }
     }
 
@@ -299,16 +327,16 @@ public class WorldPlayerListener {
      * 请求玩家信息
      */
     private static void requestPlayersInfo(List<String> playerNames, boolean isBatchRequest) {
+        // 名单查询包含负缓存中的玩家，负缓存只用于跳过单个玩家的交互查询
         if (playerNames.isEmpty()) {
             return;
         }
 
         try {
-            var request = new playerXtnInfoApi.QueryUserXtnInfoRequest(playerNames);
             String requestType = isBatchRequest ? "批量" : "单个";
 
-            playerXtnInfoApi.queryUserXtnInfoAsync(request)
-                .thenAccept(response -> handlePlayerInfoResponse(response, playerNames, requestType))
+            // 已在查询中的玩家挂到已有请求上，其余玩家分片并发请求，各分片独立重试
+            XtnInfoSingleFlight.queryAll(playerNames, RequestPriority.BACKGROUND)
                 .exceptionally(throwable -> {
                     LOGGER.error("[WorldPlayerListener] {}请求玩家信息时发生异常: {}", 
                                requestType, playerNames, throwable);
@@ -320,17 +348,6 @@ public class WorldPlayerListener {
         }
     }
 
-    /**
-     * 处理玩家信息响应
-     */
-    private static void handlePlayerInfoResponse(playerXtnInfoApi.QueryUserXtnInfoResponse response, 
-                                               List<String> requestedPlayers, String requestType) {
-        if (!response.isSuccess()) {
-            LOGGER.error("[WorldPlayerListener] {}请求失败: {} - {} (玩家: {})", 
-                       requestType, response.getCode(), response.getMessage(), requestedPlayers);
-        }
-    }
-
     // ========== 公共API方法 ==========
 
     /**
@@ -349,10 +366,12 @@ public class WorldPlayerListener {
      * 获取当前状态信息
      */
     public static String getStatusInfo() {
-        return "世界状态: %s, 已知玩家: %d, 已请求玩家: %d".formatted(
+        return "世界状态: %s, 已知玩家: %d, 已请求玩家: %d, 合并的重复查询: %d, API熔断器: %s".formatted(
                            worldState, 
                            playerStateManager.getKnownPlayerCount(),
-                           playerStateManager.getRequestedPlayerCount());
+                           playerStateManager.getRequestedPlayerCount(),
+                           XtnInfoSingleFlight.getSharedQueryCount(),
+                           XtnInfoCircuitBreaker.getState());
     }
 
     /**
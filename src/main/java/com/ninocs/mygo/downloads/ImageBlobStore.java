@@ -0,0 +1,165 @@
+package com.ninocs.mygo.downloads;
+
+import com.ninocs.mygo.util.SHA256;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 按内容寻址的图片存储
+ * 图片按SHA256保存在 MCGO/cache/blobs/<前两位>/<sha256>.<扩展名>，头像、卡片和横幅共用同一份文件：
+ *   - 同一张图片即使出现在多个URL下也只下载、保存、验证和解码一次
+ *   - 不同主机上同名的文件不会互相覆盖
+ * 地址中带SHA256的图片直接由地址得到摘要；不带的在首次下载后记录 URL -> SHA256 映射
+ * 映射以追加写入的日志文件持久化，每行一条记录："url\tsha256"
+ */
+public class ImageBlobStore {
+    private static final Logger logger = Logger.getLogger(ImageBlobStore.class.getName());
+
+    // 存储目录和映射文件路径
+    private static final String BLOB_DIR = "MCGO/cache/blobs";
+    private static final String URL_MAP_FILE = "MCGO/cache/blob_urls.idx";
+
+    // 日志行数超过有效条目数的该倍数时进行压缩
+    private static final int COMPACT_RATIO = 2;
+
+    // URL -> SHA256（只记录地址中不带SHA256的图片）
+    private static final Map<String, String> urlToDigest = new ConcurrentHashMap<>();
+
+    private static volatile boolean loaded = false;
+
+    private ImageBlobStore() {}
+
+    /**
+     * 加载URL映射到内存
+     */
+    public static synchronized void load() {
+        if (loaded) {
+            return;
+        }
+
+        Path mapFile = Paths.get(System.getProperty("user.dir"), URL_MAP_FILE);
+        try {
+            if (Files.exists(mapFile)) {
+                List<String> lines = Files.readAllLines(mapFile, StandardCharsets.UTF_8);
+                for (String line : lines) {
+                    int tab = line.lastIndexOf('\t');
+                    if (tab > 0 && SHA256.isValidSHA256(line.substring(tab + 1))) {
+                        urlToDigest.put(line.substring(0, tab), line.substring(tab + 1));
+                    }
+                }
+
+                if (lines.size() > Math.max(64, urlToDigest.size() * COMPACT_RATIO)) {
+                    rewriteMapFile(mapFile);
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to load image URL map: " + mapFile, e);
+        }
+
+        loaded = true;
+    }
+
+    /**
+     * 获取图片地址对应的SHA256：地址中带有的直接使用，否则查URL映射
+     *
+     * @param imageUrl 图片地址
+     * @return 小写的SHA256，未知时返回null
+     */
+    public static String getDigest(String imageUrl) {
+        if (imageUrl == null || imageUrl.isBlank()) {
+            return null;
+        }
+
+        String embedded = SHA256.findSHA256(imageUrl);
+        if (embedded != null) {
+            return embedded;
+        }
+
+        ensureLoaded();
+        return urlToDigest.get(imageUrl);
+    }
+
+    /**
+     * 记录下载得到的SHA256，地址中已带SHA256或映射未变化时不写入
+     *
+     * @param imageUrl 图片地址
+     * @param sha256 下载内容的SHA256
+     */
+    public static synchronized void recordDigest(String imageUrl, String sha256) {
+        if (imageUrl == null || sha256 == null || SHA256.findSHA256(imageUrl) != null
+                || imageUrl.indexOf('\n') >= 0 || imageUrl.indexOf('\t') >= 0) {
+            return;
+        }
+
+        ensureLoaded();
+        String digest = sha256.toLowerCase();
+        if (digest.equals(urlToDigest.put(imageUrl, digest))) {
+            return;
+        }
+
+        Path mapFile = Paths.get(System.getProperty("user.dir"), URL_MAP_FILE);
+        try {
+            Files.createDirectories(mapFile.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(mapFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(imageUrl + "\t" + digest);
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to append to image URL map", e);
+        }
+    }
+
+    /**
+     * 获取存储根目录（下载中的临时文件也放在这里，保证与目标文件在同一文件系统，可以原子移动）
+     */
+    public static Path getRoot() {
+        return Paths.get(System.getProperty("user.dir"), BLOB_DIR);
+    }
+
+    /**
+     * 获取指定内容的存储路径
+     *
+     * @param sha256 内容的SHA256
+     * @param extension 文件扩展名（包含点号）
+     * @return 存储路径，按SHA256前两位分目录
+     */
+    public static Path getBlobPath(String sha256, String extension) {
+        String digest = sha256.toLowerCase();
+        return getRoot().resolve(digest.substring(0, 2)).resolve(digest + extension);
+    }
+
+    private static void ensureLoaded() {
+        if (!loaded) {
+            load();
+        }
+    }
+
+    /**
+     * 将内存中的映射完整写出，替换原有的日志文件
+     */
+    private static void rewriteMapFile(Path mapFile) throws IOException {
+        Path tempFile = mapFile.resolveSibling(mapFile.getFileName() + ".tmp");
+
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> entry : urlToDigest.entrySet()) {
+                writer.write(entry.getKey() + "\t" + entry.getValue());
+                writer.newLine();
+            }
+        }
+
+        Files.move(tempFile, mapFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -1,21 +1,30 @@
 package com.ninocs.mygo.downloads;
 
+import com.ninocs.mygo.api.ApiEndpoints;
+import com.ninocs.mygo.util.PriorityExecutor;
+import com.ninocs.mygo.util.RequestPriority;
 import com.ninocs.mygo.util.SHA256;
+import com.ninocs.mygo.util.VerifiedHashIndex;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
@@ -32,14 +41,15 @@ public class ImageDownloader {
             .followRedirects(HttpClient.Redirect.NORMAL)
             .build();
     
-    // 线程池用于异步下载
-    private static final Executor downloadExecutor = Executors.newFixedThreadPool(4);
+    // 线程池用于异步下载，当前观察目标的下载优先于后台预取
+    private static final PriorityExecutor downloadExecutor = new PriorityExecutor("DFSpectatorUi-Image-Download", 4);
     
     // 缓存目录路径
     private static final String GAME_DIR = "MCGO";
     private static final String CACHE_DIR = "cache";
     private static final String AVATAR_DIR = "avatar";
     private static final String CARD_DIR = "card";
+    private static final String BLOB_DIR = "blobs";
     
     // 重试机制配置
     private static final int MAX_RETRY_ATTEMPTS = 5; // 最大重试次数
@@ -49,6 +59,12 @@ public class ImageDownloader {
     // 下载状态跟踪
     private static final ConcurrentHashMap<String, CompletableFuture<DownloadResult>> downloadTasks = new ConcurrentHashMap<>();
     
+    // 下载过图片的源站（scheme://host:port），保存在缓存目录中，进入世界时用于预热连接
+    private static final String ORIGINS_FILE = "image_origins.txt";
+    private static final int MAX_RECORDED_ORIGINS = 8;
+    private static final Set<String> imageOrigins = ConcurrentHashMap.newKeySet();
+    private static volatile boolean originsLoaded = false;
+    
     /**
      * 下载结果类
      */
@@ -89,6 +105,21 @@ public class ImageDownloader {
      */
     public static CompletableFuture<DownloadResult> downloadAvatar(String avatarUrl, String playerId, 
                                                                    DownloadProgressCallback callback) {
+        return downloadAvatar(avatarUrl, playerId, callback, RequestPriority.BACKGROUND);
+    }
+    
+    /**
+     * 按指定优先级异步下载头像图片
+     * 相同的下载已在排队时直接复用，并在需要时提升其优先级
+     * @param avatarUrl 头像URL
+     * @param playerId 玩家ID（用于日志记录）
+     * @param callback 下载进度回调（可选）
+     * @param priority 下载优先级
+     * @return CompletableFuture包装的下载结果
+     */
+    public static CompletableFuture<DownloadResult> downloadAvatar(String avatarUrl, String playerId, 
+                                                                   DownloadProgressCallback callback,
+                                                                   RequestPriority priority) {
         // 从URL中提取文件名（不含扩展名）
         String fileName = extractFileNameFromUrl(avatarUrl);
         if (fileName == null) {
@@ -96,7 +127,7 @@ public class ImageDownloader {
             logger.log(Level.WARNING, "Could not extract filename from avatar URL, using playerId as filename: " + avatarUrl);
             fileName = playerId;
         }
-        return downloadImage(avatarUrl, fileName, AVATAR_DIR, callback);
+        return downloadImage(avatarUrl, fileName, AVATAR_DIR, callback, priority);
     }
     
     /**
@@ -118,6 +149,21 @@ public class ImageDownloader {
      */
     public static CompletableFuture<DownloadResult> downloadUserCard(String cardUrl, String playerId, 
                                                                      DownloadProgressCallback callback) {
+        return downloadUserCard(cardUrl, playerId, callback, RequestPriority.BACKGROUND);
+    }
+    
+    /**
+     * 按指定优先级异步下载用户卡片图片
+     * 相同的下载已在排队时直接复用，并在需要时提升其优先级
+     * @param cardUrl 用户卡片URL
+     * @param playerId 玩家ID（用于日志记录）
+     * @param callback 下载进度回调（可选）
+     * @param priority 下载优先级
+     * @return CompletableFuture包装的下载结果
+     */
+    public static CompletableFuture<DownloadResult> downloadUserCard(String cardUrl, String playerId, 
+                                                                     DownloadProgressCallback callback,
+                                                                     RequestPriority priority) {
         // 从URL中提取文件名（不含扩展名）
         String fileName = extractFileNameFromUrl(cardUrl);
         if (fileName == null) {
@@ -125,7 +171,7 @@ public class ImageDownloader {
             logger.log(Level.WARNING, "Could not extract filename from user card URL, using playerId as filename: " + cardUrl);
             fileName = playerId;
         }
-        return downloadImage(cardUrl, fileName, CARD_DIR, callback);
+        return downloadImage(cardUrl, fileName, CARD_DIR, callback, priority);
     }
     
     /**
@@ -144,10 +190,12 @@ public class ImageDownloader {
      * @param fileName 文件名（不含扩展名）
      * @param subDir 子目录（avatar或card）
      * @param callback 下载进度回调
+     * @param priority 下载优先级
      * @return CompletableFuture包装的下载结果
      */
     private static CompletableFuture<DownloadResult> downloadImage(String imageUrl, String fileName, 
-                                                                   String subDir, DownloadProgressCallback callback) {
+                                                                   String subDir, DownloadProgressCallback callback,
+                                                                   RequestPriority priority) {
         // 参数验证
         if (imageUrl == null || imageUrl.trim().isEmpty()) {
             var errorResult = new DownloadResult(false, null, "Image URL is null or empty", 0);
@@ -165,17 +213,21 @@ public class ImageDownloader {
             return CompletableFuture.completedFuture(errorResult);
         }
         
-        // 生成唯一的任务键
-        String taskKey = subDir + "_" + fileName + "_" + imageUrl.hashCode();
+        // 生成唯一的任务键，相同内容的下载共用一个任务
+        String taskKey = taskKeyFor(imageUrl);
         
         // 检查是否已有相同的下载任务在进行
         var existingTask = downloadTasks.get(taskKey);
         if (existingTask != null && !existingTask.isDone()) {
+            // 仍在排队的低优先级下载插队到前面
+            if (existingTask instanceof PriorityExecutor.Task<DownloadResult> queuedTask && queuedTask.promote(priority)) {
+                logger.log(Level.FINE, "Promoted queued download to " + priority + ": " + imageUrl);
+            }
             return existingTask;
         }
         
         // 创建新的下载任务
-        var downloadTask = CompletableFuture.supplyAsync(() -> {
+        var downloadTask = downloadExecutor.submit(() -> {
             try {
                 return performDownloadWithRetry(imageUrl, fileName, subDir, callback);
             } catch (Exception e) {
@@ -189,7 +241,7 @@ public class ImageDownloader {
                 // 任务完成后从跟踪Map中移除
                 downloadTasks.remove(taskKey);
             }
-        }, downloadExecutor);
+        }, priority);
         
         // 将任务添加到跟踪Map
         downloadTasks.put(taskKey, downloadTask);
@@ -311,40 +363,51 @@ public class ImageDownloader {
     private static DownloadResult performDownload(String imageUrl, String fileName, String subDir, 
                                                   DownloadProgressCallback callback) {
         try {
-            // 创建缓存目录
-            Path cacheDir = createCacheDirectory(subDir);
-            if (cacheDir == null) {
-                String error = "Failed to create cache directory: " + subDir;
+            // 创建内容存储目录
+            Path blobRoot = createCacheDirectory(BLOB_DIR);
+            if (blobRoot == null) {
+                String error = "Failed to create cache directory: " + BLOB_DIR;
                 if (callback != null) callback.onError(error);
                 return new DownloadResult(false, null, error, 0);
             }
             
             // 获取文件扩展名
             String fileExtension = getFileExtension(imageUrl);
-            String fullFileName = fileName + fileExtension;
-            Path targetFile = cacheDir.resolve(fullFileName);
             
-            // 检查文件是否已存在且SHA256验证通过
-            if (Files.exists(targetFile)) {
-                // 如果URL包含SHA256，验证文件完整性
-                if (!SHA256.needsRedownload(imageUrl, targetFile.toString())) {
-                    long fileSize = Files.size(targetFile);
-                    var result = new DownloadResult(true, targetFile.toString(), null, fileSize);
-                    if (callback != null) callback.onComplete(result);
-                    return result;
-                } else {
+            // 已知内容摘要时先查内容存储，同一张图片无论来自哪个地址都只下载一次
+            String knownSHA256 = ImageBlobStore.getDigest(imageUrl);
+            if (knownSHA256 != null) {
+                Path blobFile = ImageBlobStore.getBlobPath(knownSHA256, fileExtension);
+                if (Files.exists(blobFile)) {
+                    if (SHA256.verifyFileSHA256Indexed(blobFile, knownSHA256)) {
+                        var result = new DownloadResult(true, blobFile.toString(), null, Files.size(blobFile));
+                        if (callback != null) callback.onComplete(result);
+                        return result;
+                    }
                     // 删除无效文件，准备重新下载
                     try {
-                        Files.deleteIfExists(targetFile);
+                        Files.deleteIfExists(blobFile);
                     } catch (IOException deleteEx) {
-                        logger.log(Level.WARNING, "Failed to delete invalid file: " + targetFile, deleteEx);
+                        logger.log(Level.WARNING, "Failed to delete invalid file: " + blobFile, deleteEx);
                     }
                 }
+                
+                // 旧版本按文件名保存在avatar/card目录中的文件，验证通过后移入内容存储
+                Path legacyFile = getLegacyCachePath(imageUrl, fileName, subDir);
+                if (Files.exists(legacyFile) && SHA256.verifyFileSHA256Indexed(legacyFile, knownSHA256)) {
+                    Files.createDirectories(blobFile.getParent());
+                    publish(legacyFile, blobFile);
+                    VerifiedHashIndex.remove(legacyFile);
+                    VerifiedHashIndex.recordVerified(blobFile, knownSHA256);
+                    var result = new DownloadResult(true, blobFile.toString(), null, Files.size(blobFile));
+                    if (callback != null) callback.onComplete(result);
+                    return result;
+                }
             }
             
             // 构建HTTP请求
             var request = HttpRequest.newBuilder()
-                    .uri(URI.create(imageUrl))
+                    .uri(URI.create(ApiEndpoints.rewriteImageUrl(imageUrl)))
                     .header("User-Agent", "MCGO-Client/1.0")
                     .timeout(Duration.ofSeconds(30))
                     .GET()
@@ -364,35 +427,51 @@ public class ImageDownloader {
             // 获取文件大小
             long contentLength = response.headers().firstValueAsLong("Content-Length").orElse(-1);
             
-            // 下载文件
-            try (InputStream inputStream = response.body()) {
-                long bytesDownloaded = Files.copy(inputStream, targetFile, StandardCopyOption.REPLACE_EXISTING);
+            // 边下载边计算SHA256，写入存储目录下的临时文件，验证通过后再原子移动到按摘要命名的位置，不再重新读取文件
+            String expectedSHA256 = SHA256.findSHA256(imageUrl);
+            Path tempFile = Files.createTempFile(blobRoot, "download", ".part");
+            Path targetFile;
+            long bytesDownloaded;
+            try (DigestInputStream inputStream = new DigestInputStream(response.body(), MessageDigest.getInstance("SHA-256"))) {
+                bytesDownloaded = Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
                 
-                // 验证下载文件的SHA256（如果URL包含SHA256）
-                String expectedSHA256 = SHA256.extractSHA256FromUrl(imageUrl);
-                if (expectedSHA256 != null) {
-                    if (!SHA256.verifyFileSHA256(targetFile.toString(), expectedSHA256)) {
-                        // SHA256验证失败，删除文件并返回错误
-                        try {
-                            Files.deleteIfExists(targetFile);
-                        } catch (IOException deleteEx) {
-                            logger.log(Level.WARNING, "Failed to delete corrupted file: " + targetFile, deleteEx);
-                        }
-                        String error = "Downloaded file SHA256 verification failed for: " + imageUrl;
-                        logger.log(Level.SEVERE, error);
-                        if (callback != null) callback.onError(error);
-                        return new DownloadResult(false, null, error, 0);
-                    }
+                // 验证下载内容的SHA256（如果URL包含SHA256）
+                String actualSHA256 = SHA256.digestToHex(inputStream.getMessageDigest());
+                if (expectedSHA256 != null && !expectedSHA256.equalsIgnoreCase(actualSHA256)) {
+                    // SHA256验证失败，丢弃临时文件并返回错误，已有的缓存文件保持不变
+                    Files.deleteIfExists(tempFile);
+                    String error = "Downloaded file SHA256 verification failed for: " + imageUrl
+                            + ". Expected: " + expectedSHA256 + ", Actual: " + actualSHA256;
+                    logger.log(Level.SEVERE, error);
+                    if (callback != null) callback.onError(error);
+                    return new DownloadResult(false, null, error, 0);
                 }
                 
-                // 通知下载完成
-                var result = new DownloadResult(true, targetFile.toString(), null, bytesDownloaded);
-                if (callback != null) {
-                    callback.onProgress(bytesDownloaded, contentLength > 0 ? contentLength : bytesDownloaded);
-                    callback.onComplete(result);
+                // 相同内容已经保存过（如同一张图片的另一个地址）时丢弃这次下载的副本
+                targetFile = ImageBlobStore.getBlobPath(actualSHA256, fileExtension);
+                if (Files.exists(targetFile) && VerifiedHashIndex.isVerified(targetFile, actualSHA256)) {
+                    Files.deleteIfExists(tempFile);
+                } else {
+                    Files.createDirectories(targetFile.getParent());
+                    publish(tempFile, targetFile);
+                    VerifiedHashIndex.recordVerified(targetFile, actualSHA256);
                 }
-                return result;
+                ImageBlobStore.recordDigest(imageUrl, actualSHA256);
+            } catch (IOException e) {
+                Files.deleteIfExists(tempFile);
+                throw e;
+            }
+            
+            // 记录图片源站，下次进入世界时预热连接
+            recordOrigin(request.uri());
+            
+            // 通知下载完成
+            var result = new DownloadResult(true, targetFile.toString(), null, bytesDownloaded);
+            if (callback != null) {
+                callback.onProgress(bytesDownloaded, contentLength > 0 ? contentLength : bytesDownloaded);
+                callback.onComplete(result);
             }
+            return result;
             
         } catch (IOException e) {
             String error = "IO error during download: " + e.getMessage();
@@ -413,6 +492,19 @@ public class ImageDownloader {
         }
     }
     
+    /**
+     * 把验证通过的临时文件原子替换到目标位置，读取者只会看到完整的旧文件或新文件
+     * @param tempFile 临时文件
+     * @param targetFile 目标文件
+     */
+    private static void publish(Path tempFile, Path targetFile) throws IOException {
+        try {
+            Files.move(tempFile, targetFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
     /**
      * 创建缓存目录
      * @param subDir 子目录名称
@@ -497,20 +589,7 @@ public class ImageDownloader {
      * @return 头像文件的完整路径
      */
     public static String getAvatarCachePath(String avatarUrl) {
-        Path gameDir = Paths.get(System.getProperty("user.dir"), GAME_DIR);
-        Path avatarDir = gameDir.resolve(CACHE_DIR).resolve(AVATAR_DIR);
-        
-        // 从URL中提取文件名
-        String fileName = extractFileNameFromUrl(avatarUrl);
-        if (fileName == null) {
-            // 如果无法提取文件名，使用默认名称
-            fileName = "unknown";
-        }
-        
-        // 获取文件扩展名
-        String extension = getFileExtension(avatarUrl);
-        
-        return avatarDir.resolve(fileName + extension).toString();
+        return getCachePath(avatarUrl, AVATAR_DIR);
     }
     
     /**
@@ -519,20 +598,139 @@ public class ImageDownloader {
      * @return 用户卡片文件的完整路径
      */
     public static String getUserCardCachePath(String cardUrl) {
-        Path gameDir = Paths.get(System.getProperty("user.dir"), GAME_DIR);
-        Path cardDir = gameDir.resolve(CACHE_DIR).resolve(CARD_DIR);
+        return getCachePath(cardUrl, CARD_DIR);
+    }
+    
+    /**
+     * 获取图片的缓存路径：已知内容摘要时为内容存储中的路径，否则为旧的按文件名保存的路径
+     * @param imageUrl 图片URL
+     * @param subDir 子目录（avatar或card）
+     * @return 文件的完整路径
+     */
+    private static String getCachePath(String imageUrl, String subDir) {
+        String sha256 = ImageBlobStore.getDigest(imageUrl);
+        if (sha256 != null) {
+            return ImageBlobStore.getBlobPath(sha256, getFileExtension(imageUrl)).toString();
+        }
         
         // 从URL中提取文件名
-        String fileName = extractFileNameFromUrl(cardUrl);
+        String fileName = extractFileNameFromUrl(imageUrl);
         if (fileName == null) {
             // 如果无法提取文件名，使用默认名称
             fileName = "unknown";
         }
+        return getLegacyCachePath(imageUrl, fileName, subDir).toString();
+    }
+    
+    /**
+     * 获取旧版本按文件名保存的路径 MCGO/cache/<subDir>/<文件名>.<扩展名>
+     */
+    private static Path getLegacyCachePath(String imageUrl, String fileName, String subDir) {
+        return Paths.get(System.getProperty("user.dir"), GAME_DIR, CACHE_DIR, subDir, fileName + getFileExtension(imageUrl));
+    }
+    
+    /**
+     * 下载任务键：已知内容摘要时按摘要，否则按地址
+     */
+    private static String taskKeyFor(String imageUrl) {
+        String sha256 = ImageBlobStore.getDigest(imageUrl);
+        return sha256 != null ? "blob_" + sha256 : "url_" + imageUrl;
+    }
+    
+    /**
+     * 预热到图片源站的连接
+     * 对记录过的源站以及配置的替换主机各发送一个HEAD请求，连接留在HttpClient的连接池中供之后的下载复用
+     *
+     * @return 所有源站预热结束时完成的Future，结果为成功建立连接的源站数
+     */
+    public static CompletableFuture<Integer> prewarmConnections() {
+        Set<String> origins = new LinkedHashSet<>(getImageOrigins());
+        String hostOverride = ApiEndpoints.getImageHostOverride();
+        if (hostOverride != null) {
+            try {
+                origins.add(toOrigin(URI.create(hostOverride)));
+            } catch (IllegalArgumentException e) {
+                logger.log(Level.WARNING, "Invalid image host override: " + hostOverride, e);
+            }
+        }
+        origins.remove(null);
+        
+        List<CompletableFuture<Boolean>> warmups = new ArrayList<>();
+        for (String origin : origins) {
+            var request = HttpRequest.newBuilder()
+                    .uri(URI.create(origin + "/"))
+                    .header("User-Agent", "MCGO-Client/1.0")
+                    .timeout(Duration.ofSeconds(10))
+                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .build();
+            warmups.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, throwable) -> {
+                    if (throwable != null) {
+                        logger.log(Level.FINE, "Image connection pre-warm failed for " + origin + ": " + throwable.getMessage());
+                        return false;
+                    }
+                    return true;
+                }));
+        }
         
-        // 获取文件扩展名
-        String extension = getFileExtension(cardUrl);
+        return CompletableFuture.allOf(warmups.toArray(new CompletableFuture<?>[0]))
+            .thenApply(ignored -> (int) warmups.stream().filter(CompletableFuture::join).count());
+    }
+    
+    /**
+     * 获取记录过的图片源站，首次调用时从缓存目录读取
+     */
+    public static Set<String> getImageOrigins() {
+        if (!originsLoaded) {
+            synchronized (imageOrigins) {
+                if (!originsLoaded) {
+                    Path file = Paths.get(System.getProperty("user.dir"), GAME_DIR, CACHE_DIR, ORIGINS_FILE);
+                    try {
+                        if (Files.exists(file)) {
+                            for (String line : Files.readAllLines(file)) {
+                                if (!line.isBlank() && imageOrigins.size() < MAX_RECORDED_ORIGINS) {
+                                    imageOrigins.add(line.trim());
+                                }
+                            }
+                        }
+                    } catch (IOException e) {
+                        logger.log(Level.WARNING, "Failed to read image origins: " + file, e);
+                    }
+                    originsLoaded = true;
+                }
+            }
+        }
+        return Set.copyOf(imageOrigins);
+    }
+    
+    /**
+     * 记录图片源站，出现新源站时写回缓存目录
+     */
+    private static void recordOrigin(URI uri) {
+        String origin = toOrigin(uri);
+        if (origin == null || getImageOrigins().contains(origin)) {
+            return;
+        }
         
-        return cardDir.resolve(fileName + extension).toString();
+        synchronized (imageOrigins) {
+            if (imageOrigins.size() >= MAX_RECORDED_ORIGINS || !imageOrigins.add(origin)) {
+                return;
+            }
+            Path file = Paths.get(System.getProperty("user.dir"), GAME_DIR, CACHE_DIR, ORIGINS_FILE);
+            try {
+                Files.createDirectories(file.getParent());
+                Files.write(file, imageOrigins);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to save image origins: " + file, e);
+            }
+        }
+    }
+    
+    private static String toOrigin(URI uri) {
+        if (uri == null || uri.getScheme() == null || uri.getRawAuthority() == null) {
+            return null;
+        }
+        return uri.getScheme().toLowerCase() + "://" + uri.getRawAuthority();
     }
     
     /**
@@ -555,7 +753,7 @@ public class ImageDownloader {
     /**
      * 检查指定URL是否正在下载
      * @param imageUrl 图片URL
-     * @param subDir 子目录（avatar或card）
+     * @param subDir 子目录（avatar或card），下载任务按内容共享，不再区分
      * @return 是否正在下载
      */
     public static boolean isDownloading(String imageUrl, String subDir) {
@@ -563,13 +761,7 @@ public class ImageDownloader {
             return false;
         }
         
-        String fileName = extractFileNameFromUrl(imageUrl);
-        if (fileName == null) {
-            return false;
-        }
-        
-        String taskKey = subDir + "_" + fileName + "_" + imageUrl.hashCode();
-        var task = downloadTasks.get(taskKey);
+        var task = downloadTasks.get(taskKeyFor(imageUrl));
         return task != null && !task.isDone();
     }
     
@@ -594,7 +786,7 @@ public class ImageDownloader {
     /**
      * 获取正在进行的下载任务
      * @param imageUrl 图片URL
-     * @param subDir 子目录
+     * @param subDir 子目录，下载任务按内容共享，不再区分
      * @return 下载任务的CompletableFuture，如果没有则返回null
      */
     public static CompletableFuture<DownloadResult> getDownloadTask(String imageUrl, String subDir) {
@@ -602,13 +794,7 @@ public class ImageDownloader {
             return null;
         }
         
-        String fileName = extractFileNameFromUrl(imageUrl);
-        if (fileName == null) {
-            return null;
-        }
-        
-        String taskKey = subDir + "_" + fileName + "_" + imageUrl.hashCode();
-        return downloadTasks.get(taskKey);
+        return downloadTasks.get(taskKeyFor(imageUrl));
     }
     
     /**
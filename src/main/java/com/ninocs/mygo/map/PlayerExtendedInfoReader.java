@@ -1,15 +1,19 @@
 package com.ninocs.mygo.map;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.ninocs.mygo.api.XtnInfoSingleFlight;
+import com.ninocs.mygo.client.data.PlayerDataFreshnessPolicy;
 import com.ninocs.mygo.client.data.PlayerDataStorage;
 import com.ninocs.mygo.client.data.PlayerExtendedInfo;
+import com.ninocs.mygo.client.data.PlayerExtendedInfoCache;
+import com.ninocs.mygo.client.data.PlayerUuidIndex;
+import com.ninocs.mygo.util.PriorityExecutor;
+import com.ninocs.mygo.util.RequestPriority;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.FileReader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 玩家扩展信息读取器
@@ -19,6 +23,25 @@ public class PlayerExtendedInfoReader {
     private static final Logger LOGGER = LoggerFactory.getLogger(PlayerExtendedInfoReader.class);
     private static final boolean DEBUG_LOGGING = false; // 调试日志开关
 
+    // 正在进行的异步读取任务，避免同一玩家重复读取/请求
+    private static final ConcurrentHashMap<String, PendingRead> readTasks = new ConcurrentHashMap<>();
+
+    /**
+     * 进行中的异步读取
+     *
+     * @param localRead 在ioExecutor中排队的本地读取任务，可提升优先级
+     * @param result 本地读取以及需要时API请求的最终结果
+     */
+    private record PendingRead(PriorityExecutor.Task<LocalRead> localRead, CompletableFuture<PlayerExtendedInfo> result) {}
+
+    /**
+     * 本地读取的结果
+     *
+     * @param info 内存缓存或本地文件中的数据，可能为null或已过期
+     * @param usable 数据是否可以直接使用，不可用时需要请求API
+     */
+    private record LocalRead(PlayerExtendedInfo info, boolean usable) {}
+
     /**
      * 根据玩家名读取玩家扩展信息
      * 
@@ -26,6 +49,19 @@ public class PlayerExtendedInfoReader {
      * @return 玩家扩展信息，如果读取失败返回null
      */
     public static PlayerExtendedInfo readPlayerExtendedInfo(String playerName) {
+        return readPlayerExtendedInfo(playerName, RequestPriority.INTERACTIVE);
+    }
+
+    /**
+     * 按指定优先级读取玩家扩展信息
+     * 只读取内存缓存和本地存储，不等待网络，可以在渲染线程调用；
+     * 本地没有数据或数据已过期时以该优先级在后台请求API，结果到达后下次读取即可拿到
+     * 
+     * @param playerName 玩家名
+     * @param priority 后台API请求的优先级
+     * @return 玩家扩展信息（可能已过期），本地没有数据或读取失败返回null
+     */
+    public static PlayerExtendedInfo readPlayerExtendedInfo(String playerName, RequestPriority priority) {
         if (playerName == null || playerName.trim().isEmpty()) {
             if (DEBUG_LOGGING) {
                 LOGGER.info("玩家名为空，无法读取扩展信息");
@@ -34,15 +70,13 @@ public class PlayerExtendedInfoReader {
         }
 
         try {
-            String playerData = PlayerDataStorage.loadPlayerData(playerName);
-            if (playerData == null || playerData.trim().isEmpty()) {
-                if (DEBUG_LOGGING) {
-                    LOGGER.info("玩家 {} 没有存储的数据", playerName);
-                }
-                return null;
+            LocalRead local = readLocal(playerName);
+            if (!local.usable()) {
+                // 本地没有数据或数据已过期时在后台请求API（同一玩家的请求会合并），
+                // 这次先返回已过期的数据，总比没有好
+                readPlayerExtendedInfoAsync(playerName, priority);
             }
-
-            return parsePlayerExtendedInfo(playerName, playerData);
+            return local.info();
         } catch (Exception e) {
             LOGGER.error("读取玩家 {} 扩展信息时发生错误: {}", playerName, e.getMessage(), e);
             return null;
@@ -50,143 +84,150 @@ public class PlayerExtendedInfoReader {
     }
 
     /**
-     * 根据玩家UUID读取玩家扩展信息
-     * 
-     * @param playerUUID 玩家UUID
-     * @return 玩家扩展信息，如果读取失败返回null
+     * 从内存缓存或本地文件读取玩家数据，不请求API
+     * 新鲜或过时的数据都可以直接使用，过时的数据会在后台刷新
+     *
+     * @param playerName 玩家名
+     * @return 本地读取的结果
      */
-    public static PlayerExtendedInfo readPlayerExtendedInfoByUUID(String playerUUID) {
-        if (playerUUID == null || playerUUID.trim().isEmpty()) {
-            if (DEBUG_LOGGING) {
-                LOGGER.info("玩家UUID为空，无法读取扩展信息");
-            }
-            return null;
+    private static LocalRead readLocal(String playerName) {
+        // 优先使用内存缓存，其次读取本地文件
+        PlayerExtendedInfo info = PlayerExtendedInfoCache.get(playerName);
+        if (info == null) {
+            // 读取磁盘期间API的结果可能已进入缓存，只在缓存中没有更新数据时写入
+            info = PlayerExtendedInfoCache.putIfNewer(playerName, PlayerDataStorage.loadStoredPlayerInfo(playerName));
         }
 
-        try {
-            // 遍历所有玩家数据文件，查找匹配的UUID
-            File dataDir = new File("MCGO/data");
-            if (!dataDir.exists() || !dataDir.isDirectory()) {
-                if (DEBUG_LOGGING) {
-                    LOGGER.info("数据目录不存在: {}", dataDir.getAbsolutePath());
-                }
-                return null;
-            }
+        PlayerExtendedInfo usable = serveIfUsable(playerName, info);
+        if (usable != null) {
+            return new LocalRead(usable, true);
+        }
+
+        if (DEBUG_LOGGING) {
+            LOGGER.info("玩家 {} 没有存储的数据或数据已过期，从API请求", playerName);
+        }
+        return new LocalRead(info, false);
+    }
 
-            File[] playerFiles = dataDir.listFiles((dir, name) -> name.endsWith(".json"));
-            if (playerFiles == null) {
+    /**
+     * 根据新鲜度策略判断数据是否可以直接使用
+     * 过时的数据会立即返回，同时在后台触发一次刷新
+     *
+     * @param playerName 玩家名
+     * @param info 缓存的玩家扩展信息
+     * @return 可以直接使用时返回info，数据不存在或已过期返回null
+     */
+    private static PlayerExtendedInfo serveIfUsable(String playerName, PlayerExtendedInfo info) {
+        switch (PlayerDataFreshnessPolicy.evaluate(info)) {
+            case FRESH:
+                return info;
+            case STALE:
                 if (DEBUG_LOGGING) {
-                    LOGGER.info("数据目录中没有找到玩家数据文件");
+                    LOGGER.info("玩家 {} 的数据已过时，后台刷新", playerName);
                 }
+                PlayerDataStorage.refreshPlayerDataInBackground(playerName);
+                return info;
+            default:
                 return null;
-            }
-
-            for (File playerFile : playerFiles) {
-                try (FileReader reader = new FileReader(playerFile)) {
-                    JsonElement element = JsonParser.parseReader(reader);
-                    if (element.isJsonObject()) {
-                        JsonObject jsonObject = element.getAsJsonObject();
-                        if (jsonObject.has("uuid")) {
-                            String fileUUID = jsonObject.get("uuid").getAsString();
-                            if (playerUUID.equals(fileUUID)) {
-                                String playerName = playerFile.getName().replace(".json", "");
-                                return parsePlayerExtendedInfo(playerName, jsonObject.toString());
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    if (DEBUG_LOGGING) {
-                        LOGGER.info("读取文件 {} 时发生错误: {}", playerFile.getName(), e.getMessage());
-                    }
-                }
-            }
-
-            if (DEBUG_LOGGING) {
-                LOGGER.info("未找到UUID为 {} 的玩家数据", playerUUID);
-            }
-            return null;
-        } catch (Exception e) {
-            LOGGER.error("根据UUID {} 读取玩家扩展信息时发生错误: {}", playerUUID, e.getMessage(), e);
-            return null;
         }
     }
 
     /**
-     * 解析JSON字符串为玩家扩展信息对象
+     * 异步读取玩家扩展信息
+     * 内存缓存命中时立即返回已完成的Future，否则在后台线程读取文件或请求API
      * 
      * @param playerName 玩家名
-     * @param jsonData JSON数据字符串
-     * @return 解析后的玩家扩展信息
+     * @return CompletableFuture包装的玩家扩展信息，读取失败时结果为null
      */
-    private static PlayerExtendedInfo parsePlayerExtendedInfo(String playerName, String jsonData) {
-        try {
-            JsonElement element = JsonParser.parseString(jsonData);
-            if (!element.isJsonObject()) {
-                if (DEBUG_LOGGING) {
-                    LOGGER.info("玩家 {} 的数据不是有效的JSON对象", playerName);
-                }
-                return null;
-            }
+    public static CompletableFuture<PlayerExtendedInfo> readPlayerExtendedInfoAsync(String playerName) {
+        return readPlayerExtendedInfoAsync(playerName, RequestPriority.INTERACTIVE);
+    }
 
-            JsonObject jsonObject = element.getAsJsonObject();
-            PlayerExtendedInfo info = new PlayerExtendedInfo();
+    /**
+     * 按指定优先级异步读取玩家扩展信息
+     * 同一玩家的读取任务仍在排队时直接复用，并在需要时提升其优先级
+     * 
+     * @param playerName 玩家名
+     * @param priority 读取和API请求的优先级
+     * @return CompletableFuture包装的玩家扩展信息，读取失败时结果为null
+     */
+    public static CompletableFuture<PlayerExtendedInfo> readPlayerExtendedInfoAsync(String playerName, RequestPriority priority) {
+        if (playerName == null || playerName.trim().isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
 
-            // 设置基本信息
-            info.setPlayerName(playerName);
-            if (jsonObject.has("playerUUID")) {
-                info.setPlayerUUID(jsonObject.get("playerUUID").getAsString());
-            } else if (jsonObject.has("uuid")) {
-                info.setPlayerUUID(jsonObject.get("uuid").getAsString());
-            }
+        PlayerExtendedInfo cached = serveIfUsable(playerName, PlayerExtendedInfoCache.get(playerName));
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
 
-            // 从根级别读取基本信息
-            if (jsonObject.has("userNm") && !jsonObject.get("userNm").isJsonNull()) {
-                info.setUserNm(jsonObject.get("userNm").getAsString());
-            }
-            if (jsonObject.has("avatar") && !jsonObject.get("avatar").isJsonNull()) {
-                info.setAvatar(jsonObject.get("avatar").getAsString());
-            }
-            if (jsonObject.has("loginIdNbr") && !jsonObject.get("loginIdNbr").isJsonNull()) {
-                info.setLoginIdNbr(jsonObject.get("loginIdNbr").getAsString());
-            }
+        // 原子地复用相同玩家进行中的读取任务，或创建新任务，避免并发调用重复提交
+        var created = new AtomicBoolean();
+        var pending = readTasks.computeIfAbsent(playerName, name -> {
+            created.set(true);
+            return startRead(name, priority);
+        });
 
-            // 检查是否有xtnInfo对象
-            JsonObject xtnInfo = null;
-            if (jsonObject.has("xtnInfo") && jsonObject.get("xtnInfo").isJsonObject()) {
-                xtnInfo = jsonObject.getAsJsonObject("xtnInfo");
-            }
+        if (created.get()) {
+            // 只移除自己创建的任务，不会误删之后为同一玩家新建的任务
+            pending.result().whenComplete((result, throwable) -> readTasks.remove(playerName, pending));
+            return pending.result();
+        }
 
-            // 从xtnInfo中读取扩展信息
-            if (xtnInfo != null) {
-                if (xtnInfo.has("userCard") && !xtnInfo.get("userCard").isJsonNull()) {
-                    info.setUserCard(xtnInfo.get("userCard").getAsString());
-                }
-                if (xtnInfo.has("userBanner") && !xtnInfo.get("userBanner").isJsonNull()) {
-                    info.setUserBanner(xtnInfo.get("userBanner").getAsString());
-                }
-                if (xtnInfo.has("mvpMusicUrl") && !xtnInfo.get("mvpMusicUrl").isJsonNull()) {
-                    info.setMvpMusicUrl(xtnInfo.get("mvpMusicUrl").getAsString());
-                }
-                if (xtnInfo.has("mvpVideosUrl") && !xtnInfo.get("mvpVideosUrl").isJsonNull()) {
-                    info.setMvpVideosUrl(xtnInfo.get("mvpVideosUrl").getAsString());
-                }
-                if (xtnInfo.has("userSpaceContexts") && !xtnInfo.get("userSpaceContexts").isJsonNull()) {
-                    info.setUserSpaceContexts(xtnInfo.get("userSpaceContexts").getAsString());
-                }
-                if (xtnInfo.has("mvpMusicNm") && !xtnInfo.get("mvpMusicNm").isJsonNull()) {
-                    info.setMvpMusicNm(xtnInfo.get("mvpMusicNm").getAsString());
+        // 仍在排队的任务提升优先级；已经在等待API的任务则提升其进行中的查询
+        boolean promoted = pending.localRead().promote(priority);
+        if (!promoted && priority == RequestPriority.INTERACTIVE) {
+            XtnInfoSingleFlight.promote(playerName);
+        }
+        return pending.result();
+    }
+
+    /**
+     * 在ioExecutor中读取本地数据，需要时再异步请求API
+     * 等待API响应期间不占用ioExecutor的线程
+     */
+    private static PendingRead startRead(String playerName, RequestPriority priority) {
+        var localRead = PlayerDataStorage.getIoExecutor().submit(() -> readLocal(playerName), priority);
+        var result = localRead
+            .thenCompose(local -> {
+                if (local.usable()) {
+                    return CompletableFuture.completedFuture(local.info());
                 }
-            }
+                // 排队期间可能已被提升，按提升后的优先级请求API；请求失败时仍使用已过期的数据
+                return PlayerDataStorage.requestPlayerInfoFromApiAsync(playerName, localRead.getPriority())
+                    .thenApply(fetched -> fetched != null ? fetched : local.info());
+            })
+            .exceptionally(throwable -> {
+                LOGGER.error("读取玩家 {} 扩展信息时发生错误: {}", playerName, throwable.getMessage(), throwable);
+                return null;
+            });
+        return new PendingRead(localRead, result);
+    }
 
+    /**
+     * 根据玩家UUID读取玩家扩展信息
+     * 
+     * @param playerUUID 玩家UUID
+     * @return 玩家扩展信息，如果读取失败返回null
+     */
+    public static PlayerExtendedInfo readPlayerExtendedInfoByUUID(String playerUUID) {
+        if (playerUUID == null || playerUUID.trim().isEmpty()) {
             if (DEBUG_LOGGING) {
-                LOGGER.info("成功解析玩家 {} 的扩展信息: {}", playerName, info.toString());
+                LOGGER.info("玩家UUID为空，无法读取扩展信息");
             }
+            return null;
+        }
 
-            return info;
-        } catch (Exception e) {
-            LOGGER.error("解析玩家 {} 的JSON数据时发生错误: {}", playerName, e.getMessage(), e);
+        // 通过UUID索引直接定位玩家名，查找代价与已缓存的玩家数量无关
+        String playerName = PlayerUuidIndex.getPlayerName(playerUUID);
+        if (playerName == null) {
+            if (DEBUG_LOGGING) {
+                LOGGER.info("未找到UUID为 {} 的玩家数据", playerUUID);
+            }
             return null;
         }
+
+        return readPlayerExtendedInfo(playerName);
     }
 
     /**
@@ -200,6 +241,10 @@ public class PlayerExtendedInfoReader {
             return false;
         }
 
+        if (PlayerExtendedInfoCache.get(playerName) != null) {
+            return true;
+        }
+
         try {
             String playerData = PlayerDataStorage.loadPlayerData(playerName);
             return playerData != null && !playerData.trim().isEmpty();
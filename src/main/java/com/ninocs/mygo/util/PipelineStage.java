@@ -0,0 +1,239 @@
+package com.ninocs.mygo.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 处理流水线中的一个阶段
+ * 每个阶段有自己的有界队列和并发上限，阶段之间互不阻塞：
+ *   - 排队中的任务按RequestPriority从高到低开始执行，同一优先级内先提交先执行
+ *   - 任务可以是异步的，返回的Future完成前一直占用一个并发名额（如等待磁盘写入或图片下载完成）
+ *   - 队列满时按溢出策略拒绝任务或由提交者自己执行
+ *   - 统计队列深度、排队耗时和从入队到完成的总耗时
+ */
+public class PipelineStage implements Executor {
+    private static final Logger logger = Logger.getLogger(PipelineStage.class.getName());
+
+    /**
+     * 队列已满时的处理方式
+     */
+    public enum OverflowPolicy {
+        // 拒绝任务，由提交者决定如何降级
+        REJECT,
+        // 在提交者线程中直接执行（用于不能丢弃的阶段，形成背压）
+        CALLER_RUNS
+    }
+
+    private final String name;
+    private final int workers;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final PriorityBlockingQueue<Entry> queue = new PriorityBlockingQueue<>();
+    // 已占用的排队名额，PriorityBlockingQueue本身没有容量上限
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Semaphore permits;
+    private final ExecutorService executor;
+    private final AtomicLong sequence = new AtomicLong();
+
+    // 统计：提交数、开始数、完成数、拒绝数、累计排队耗时、累计总耗时、最大总耗时（纳秒）
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /**
+     * 排队中的任务
+     */
+    private record Entry(Supplier<? extends CompletionStage<?>> task, RequestPriority priority, long seq,
+                         long enqueuedNanos) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry other) {
+            int byPriority = Integer.compare(priority.ordinal(), other.priority.ordinal());
+            return byPriority != 0 ? byPriority : Long.compare(seq, other.seq);
+        }
+    }
+
+    /**
+     * @param name 阶段名称，同时作为线程名前缀
+     * @param workers 同时进行的任务数上限
+     * @param capacity 排队任务数上限
+     * @param overflowPolicy 队列已满时的处理方式
+     */
+    public PipelineStage(String name, int workers, int capacity, OverflowPolicy overflowPolicy) {
+        this.name = name;
+        this.workers = Math.max(1, workers);
+        this.capacity = Math.max(1, capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.permits = new Semaphore(this.workers);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.workers, runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 提交同步任务，队列已满时按溢出策略处理；REJECT策略下被拒绝的任务直接丢弃
+     */
+    @Override
+    public void execute(Runnable command) {
+        submit(() -> {
+            command.run();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * 以后台优先级提交任务
+     *
+     * @param task 在阶段线程中执行的任务，返回的Future完成时该任务才算结束
+     * @return 任务是否被接受；CALLER_RUNS策略下总是返回true
+     */
+    public boolean submit(Supplier<? extends CompletionStage<?>> task) {
+        return submit(task, RequestPriority.BACKGROUND);
+    }
+
+    /**
+     * 以指定优先级提交任务
+     *
+     * @param task 在阶段线程中执行的任务，返回的Future完成时该任务才算结束
+     * @param priority 任务优先级，排队时高优先级的任务先开始
+     * @return 任务是否被接受；CALLER_RUNS策略下总是返回true
+     */
+    public boolean submit(Supplier<? extends CompletionStage<?>> task, RequestPriority priority) {
+        Entry entry = new Entry(task, priority == null ? RequestPriority.BACKGROUND : priority,
+                sequence.incrementAndGet(), System.nanoTime());
+        if (!reserveSlot()) {
+            if (overflowPolicy == OverflowPolicy.CALLER_RUNS) {
+                submitted.incrementAndGet();
+                run(entry, false);
+                return true;
+            }
+            rejected.incrementAndGet();
+            return false;
+        }
+        queue.offer(entry);
+        submitted.incrementAndGet();
+        dispatch();
+        return true;
+    }
+
+    /**
+     * 占用一个排队名额
+     *
+     * @return 队列未满时返回true
+     */
+    private boolean reserveSlot() {
+        while (true) {
+            int current = queued.get();
+            if (current >= capacity) {
+                return false;
+            }
+            if (queued.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 在并发名额允许时把排队的任务交给工作线程
+     */
+    private void dispatch() {
+        while (permits.tryAcquire()) {
+            Entry entry = queue.poll();
+            if (entry == null) {
+                permits.release();
+                // 释放名额后可能有新任务入队而错过了调度，重新检查
+                if (queue.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            queued.decrementAndGet();
+            executor.execute(() -> run(entry, true));
+        }
+    }
+
+    private void run(Entry entry, boolean holdsPermit) {
+        long startNanos = System.nanoTime();
+        totalWaitNanos.addAndGet(startNanos - entry.enqueuedNanos());
+        started.incrementAndGet();
+
+        CompletionStage<?> result;
+        try {
+            result = entry.task().get();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Pipeline stage " + name + " task failed", e);
+            result = null;
+        }
+
+        if (result == null) {
+            finish(entry, holdsPermit);
+        } else {
+            result.whenComplete((value, throwable) -> finish(entry, holdsPermit));
+        }
+    }
+
+    private void finish(Entry entry, boolean holdsPermit) {
+        long latency = System.nanoTime() - entry.enqueuedNanos();
+        totalLatencyNanos.addAndGet(latency);
+        maxLatencyNanos.accumulateAndGet(latency, Math::max);
+        completed.incrementAndGet();
+        if (holdsPermit) {
+            permits.release();
+            dispatch();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 获取排队中的任务数
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * 获取正在进行的任务数
+     */
+    public int getActiveCount() {
+        return workers - permits.availablePermits();
+    }
+
+    /**
+     * 获取被拒绝的任务数
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public String getStats() {
+        long begun = started.get();
+        long done = completed.get();
+        return String.format("%s[queued=%d, active=%d, submitted=%d, completed=%d, rejected=%d, avgWait=%.1fms, avgLatency=%.1fms, maxLatency=%.1fms]",
+                name, getQueueDepth(), getActiveCount(), submitted.get(), done, rejected.get(),
+                begun == 0 ? 0.0 : totalWaitNanos.get() / 1_000_000.0 / begun,
+                done == 0 ? 0.0 : totalLatencyNanos.get() / 1_000_000.0 / done,
+                maxLatencyNanos.get() / 1_000_000.0);
+    }
+}
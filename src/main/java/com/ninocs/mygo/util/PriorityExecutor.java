@@ -0,0 +1,139 @@
+package com.ninocs.mygo.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 按优先级调度的固定大小线程池
+ * 排队中的任务按RequestPriority从高到低执行，同一优先级内先提交先执行；
+ * 排队中的任务可以被提升优先级（如后台预取的玩家变成了当前观察目标）
+ */
+public class PriorityExecutor implements Executor {
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * @param threadName 线程名前缀
+     * @param threads 线程数
+     */
+    public PriorityExecutor(String threadName, int threads) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, threadName + "-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // 预先启动所有线程，保证每个任务都经过优先级队列
+        this.executor.prestartAllCoreThreads();
+    }
+
+    /**
+     * 以后台优先级执行任务
+     */
+    @Override
+    public void execute(Runnable command) {
+        execute(command, RequestPriority.BACKGROUND);
+    }
+
+    /**
+     * 以指定优先级执行任务
+     */
+    public void execute(Runnable command, RequestPriority priority) {
+        submit(() -> {
+            command.run();
+            return null;
+        }, priority);
+    }
+
+    /**
+     * 以指定优先级提交任务
+     *
+     * @return 任务本身，同时也是结果的Future，可用于提升优先级
+     */
+    public <T> Task<T> submit(Supplier<T> supplier, RequestPriority priority) {
+        Task<T> task = new Task<>(supplier, priority == null ? RequestPriority.BACKGROUND : priority, sequence.incrementAndGet());
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * 获取排队中的任务数
+     */
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * 获取正在执行的任务数
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * 带优先级的任务
+     */
+    public class Task<T> extends CompletableFuture<T> implements Runnable, Comparable<Task<?>> {
+        private final Supplier<T> supplier;
+        private final long seq;
+        private volatile RequestPriority priority;
+
+        private Task(Supplier<T> supplier, RequestPriority priority, long seq) {
+            this.supplier = supplier;
+            this.priority = priority;
+            this.seq = seq;
+        }
+
+        @Override
+        public void run() {
+            if (isDone()) {
+                return;
+            }
+            try {
+                complete(supplier.get());
+            } catch (Throwable t) {
+                completeExceptionally(t);
+            }
+        }
+
+        @Override
+        public int compareTo(Task<?> other) {
+            int byPriority = Integer.compare(priority.ordinal(), other.priority.ordinal());
+            return byPriority != 0 ? byPriority : Long.compare(seq, other.seq);
+        }
+
+        /**
+         * 获取当前优先级
+         */
+        public RequestPriority getPriority() {
+            return priority;
+        }
+
+        /**
+         * 提升排队中任务的优先级；任务已开始执行或新优先级不更高时不做任何事
+         *
+         * @return 是否提升成功
+         */
+        public boolean promote(RequestPriority newPriority) {
+            synchronized (PriorityExecutor.this) {
+                if (newPriority == null || !newPriority.isHigherThan(priority)) {
+                    return false;
+                }
+                // 优先级队列不会因元素变化重新排序，需要先移出再放回
+                if (!executor.getQueue().remove(this)) {
+                    return false;
+                }
+                priority = newPriority;
+                executor.getQueue().offer(this);
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.ninocs.mygo.util;
+
+/**
+ * 网络请求和后台任务的优先级
+ * 声明顺序即优先顺序：排在前面的优先级更高
+ */
+public enum RequestPriority {
+    /**
+     * 当前观察目标（HUD正在显示的玩家），需要尽快显示
+     */
+    INTERACTIVE,
+
+    /**
+     * 很可能马上被观察的玩家（如观察目标附近的玩家）
+     */
+    LIKELY_NEXT,
+
+    /**
+     * 后台预取（如进入世界时的全员查询），在有高优先级任务时让路
+     */
+    BACKGROUND;
+
+    /**
+     * 判断是否比另一个优先级更高
+     */
+    public boolean isHigherThan(RequestPriority other) {
+        return other != null && ordinal() < other.ordinal();
+    }
+
+    /**
+     * 返回两个优先级中较高的一个
+     */
+    public static RequestPriority highest(RequestPriority a, RequestPriority b) {
+        if (a == null) {
+            return b;
+        }
+        return b != null && b.isHigherThan(a) ? b : a;
+    }
+}
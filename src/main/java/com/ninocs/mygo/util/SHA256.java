@@ -131,6 +131,19 @@ public class SHA256 {
         }
     }
     
+    /**
+     * 在URL中查找SHA256文件名，找不到时不记录警告（用于判断地址是否按内容命名）
+     * @param url URL
+     * @return 找到的SHA256值（小写），未找到返回null
+     */
+    public static String findSHA256(String url) {
+        if (url == null) {
+            return null;
+        }
+        Matcher matcher = SHA256_PATTERN.matcher(url);
+        return matcher.find() ? matcher.group(1).toLowerCase() : null;
+    }
+    
     /**
      * 验证文件的SHA256是否与期望值匹配
      * @param filePath 文件路径
@@ -176,6 +189,7 @@ public class SHA256 {
     
     /**
      * 验证URL对应的文件SHA256是否正确
+     * VerifiedHashIndex中有匹配记录且文件元数据未变时直接通过；否则重新计算并更新索引
      * @param url 包含SHA256的URL
      * @param filePath 本地文件路径
      * @return true如果SHA256匹配，false如果不匹配或验证失败
@@ -187,7 +201,33 @@ public class SHA256 {
             return false;
         }
         
-        return verifyFileSHA256(filePath, expectedSHA256);
+        return verifyFileSHA256Indexed(Paths.get(filePath), expectedSHA256);
+    }
+    
+    /**
+     * 验证文件的SHA256是否与期望值匹配
+     * VerifiedHashIndex中有匹配记录且文件元数据未变时直接通过；否则重新计算并更新索引
+     * @param filePath 文件路径对象
+     * @param expectedSHA256 期望的SHA256值
+     * @return true如果匹配，false如果不匹配或验证失败
+     */
+    public static boolean verifyFileSHA256Indexed(Path filePath, String expectedSHA256) {
+        if (filePath == null || expectedSHA256 == null) {
+            return false;
+        }
+        
+        // 文件自上次验证后未变化时不再重新计算
+        if (VerifiedHashIndex.isVerified(filePath, expectedSHA256)) {
+            return true;
+        }
+        
+        boolean valid = verifyFileSHA256(filePath.toString(), expectedSHA256);
+        if (valid) {
+            VerifiedHashIndex.recordVerified(filePath, expectedSHA256);
+        } else {
+            VerifiedHashIndex.remove(filePath);
+        }
+        return valid;
     }
     
     /**
@@ -242,6 +282,15 @@ public class SHA256 {
         return needsRedownload(url, filePath.toString());
     }
     
+    /**
+     * 将已完成计算的摘要转换为十六进制字符串（用于边读边计算的场景，如DigestInputStream）
+     * @param digest 已写入全部数据的SHA-256摘要
+     * @return SHA256哈希值（小写十六进制字符串）
+     */
+    public static String digestToHex(MessageDigest digest) {
+        return bytesToHex(digest.digest());
+    }
+    
     /**
      * 将字节数组转换为十六进制字符串
      * @param bytes 字节数组
@@ -0,0 +1,240 @@
+package com.ninocs.mygo.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 已验证文件的SHA256索引
+ * 记录每个通过SHA256验证的文件在验证时的大小、修改时间和文件标识（fileKey），
+ * 之后只需一次stat比较这些元数据即可确认文件未变化，不必重新读取和计算；元数据不一致时才需要完整重新计算
+ * 索引以追加写入的日志文件持久化，每行一条记录：
+ *   "sha256\tsize\tmtime\tfileKey\tpath" 表示文件已验证，"\t\t\t\tpath" 表示删除该文件的记录
+ */
+public class VerifiedHashIndex {
+    private static final Logger logger = Logger.getLogger(VerifiedHashIndex.class.getName());
+
+    // 索引文件路径（相对于游戏目录）
+    private static final String INDEX_FILE = "MCGO/cache/verified_hashes.idx";
+
+    // 日志行数超过有效条目数的该倍数时进行压缩
+    private static final int COMPACT_RATIO = 2;
+
+    // 文件绝对路径 -> 验证记录
+    private static final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private static volatile boolean loaded = false;
+
+    /**
+     * 验证记录：验证通过时文件的SHA256和元数据
+     */
+    private record Entry(String sha256, long size, long mtimeNanos, String fileKey) {
+        boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size()
+                    && mtimeNanos == attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+                    && fileKey.equals(fileKeyOf(attributes));
+        }
+    }
+
+    private VerifiedHashIndex() {}
+
+    /**
+     * 加载索引到内存
+     * 日志需要压缩时，顺带丢弃文件已不存在的条目
+     */
+    public static synchronized void load() {
+        if (loaded) {
+            return;
+        }
+
+        Path indexFile = Paths.get(System.getProperty("user.dir"), INDEX_FILE);
+        try {
+            if (Files.exists(indexFile)) {
+                List<String> lines = Files.readAllLines(indexFile, StandardCharsets.UTF_8);
+                for (String line : lines) {
+                    applyLine(line);
+                }
+
+                if (lines.size() > Math.max(64, entries.size() * COMPACT_RATIO)) {
+                    pruneMissingFiles();
+                    rewriteIndexFile();
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to load verified hash index: " + indexFile, e);
+        }
+
+        loaded = true;
+    }
+
+    /**
+     * 检查文件是否已按期望的SHA256验证过且之后未变化（只做一次stat，不读取文件内容）
+     *
+     * @param file 文件路径
+     * @param expectedSHA256 期望的SHA256值，为null时总是返回false
+     * @return true如果索引中的SHA256与期望值相同且文件的大小、修改时间、fileKey与验证时一致
+     */
+    public static boolean isVerified(Path file, String expectedSHA256) {
+        if (file == null || expectedSHA256 == null) {
+            return false;
+        }
+
+        ensureLoaded();
+        Entry entry = entries.get(keyOf(file));
+        if (entry == null || !entry.sha256().equalsIgnoreCase(expectedSHA256.trim())) {
+            return false;
+        }
+
+        try {
+            return entry.matches(Files.readAttributes(file, BasicFileAttributes.class));
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Failed to stat verified file: " + file, e);
+            return false;
+        }
+    }
+
+    /**
+     * 记录文件已通过验证，保存当前的元数据
+     *
+     * @param file 文件路径
+     * @param sha256 文件内容的SHA256值
+     */
+    public static synchronized void recordVerified(Path file, String sha256) {
+        if (file == null || sha256 == null) {
+            return;
+        }
+
+        ensureLoaded();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            Entry entry = new Entry(sha256.trim().toLowerCase(), attributes.size(),
+                    attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), fileKeyOf(attributes));
+
+            String key = keyOf(file);
+            if (entry.equals(entries.put(key, entry))) {
+                return;
+            }
+            appendLine(entry.sha256() + "\t" + entry.size() + "\t" + entry.mtimeNanos() + "\t" + entry.fileKey() + "\t" + key);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to record verified file: " + file, e);
+        }
+    }
+
+    /**
+     * 删除文件的验证记录（文件被删除或验证失败时调用）
+     *
+     * @param file 文件路径
+     */
+    public static synchronized void remove(Path file) {
+        if (file == null) {
+            return;
+        }
+
+        ensureLoaded();
+        String key = keyOf(file);
+        if (entries.remove(key) != null) {
+            appendLine("\t\t\t\t" + key);
+        }
+    }
+
+    /**
+     * 获取索引中的条目数
+     */
+    public static int size() {
+        ensureLoaded();
+        return entries.size();
+    }
+
+    private static void ensureLoaded() {
+        if (!loaded) {
+            load();
+        }
+    }
+
+    private static String keyOf(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    private static String fileKeyOf(BasicFileAttributes attributes) {
+        // 部分文件系统（如Windows）不提供fileKey
+        return Objects.toString(attributes.fileKey(), "-").replace('\t', ' ');
+    }
+
+    /**
+     * 丢弃文件已被删除的条目（如缓存目录被手动清理）
+     */
+    private static void pruneMissingFiles() {
+        int before = entries.size();
+        entries.keySet().removeIf(path -> !Files.exists(Paths.get(path)));
+        if (entries.size() < before) {
+            logger.log(Level.FINE, "Pruned " + (before - entries.size()) + " verified hash entries for missing files");
+        }
+    }
+
+    private static void applyLine(String line) {
+        String[] fields = line.split("\t", 5);
+        if (fields.length < 5 || fields[4].isEmpty()) {
+            return;
+        }
+
+        if (fields[0].isEmpty()) {
+            entries.remove(fields[4]);
+            return;
+        }
+
+        try {
+            entries.put(fields[4], new Entry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[3]));
+        } catch (NumberFormatException e) {
+            logger.log(Level.FINE, "Skipping malformed verified hash index line: " + line);
+        }
+    }
+
+    private static void appendLine(String line) {
+        try {
+            Path indexFile = Paths.get(System.getProperty("user.dir"), INDEX_FILE);
+            Files.createDirectories(indexFile.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(line);
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to append to verified hash index", e);
+        }
+    }
+
+    /**
+     * 将内存中的索引完整写出，替换原有的日志文件
+     */
+    private static void rewriteIndexFile() throws IOException {
+        Path indexFile = Paths.get(System.getProperty("user.dir"), INDEX_FILE);
+        Files.createDirectories(indexFile.getParent());
+        Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+                Entry entry = mapEntry.getValue();
+                writer.write(entry.sha256() + "\t" + entry.size() + "\t" + entry.mtimeNanos() + "\t" + entry.fileKey() + "\t" + mapEntry.getKey());
+                writer.newLine();
+            }
+        }
+
+        Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}